@@ -2,26 +2,53 @@ package com.caspercodes.bankingapi.config;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.aop.interceptor.AsyncUncaughtExceptionHandler;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.scheduling.annotation.AsyncConfigurer;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.lang.reflect.Method;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
 @Slf4j
 public class AsyncConfig implements AsyncConfigurer {
 
+    // Same switch Spring Boot uses to run Tomcat request handling on virtual threads
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    // Upper bound on concurrent @Async tasks in virtual thread mode, -1 for unbounded
+    @Value("${async.virtual.concurrency-limit:-1}")
+    private int virtualConcurrencyLimit;
+
+    // Emails no longer go through @Async, they are written to the outbox and sent by emailDispatchExecutor.
+    // What remains here is background work such as loading the registered email filter
     @Override
     public Executor getAsyncExecutor() {
+        if (virtualThreads) {
+            // One virtual thread per task, blocking I/O parks the thread instead of holding a pool slot
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("async-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(virtualConcurrencyLimit);
+            executor.setTaskTerminationTimeout(30_000);
+
+            log.info("Async Executor initialized with virtual threads, concurrency limit: {}", virtualConcurrencyLimit);
+
+            return executor;
+        }
+
         ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
         executor.setCorePoolSize(2);
         executor.setMaxPoolSize(5);
         executor.setQueueCapacity(100);
-        executor.setThreadNamePrefix("async-email-");
+        executor.setThreadNamePrefix("async-");
         executor.setWaitForTasksToCompleteOnShutdown(true);
         executor.setAwaitTerminationSeconds(30);
         executor.initialize();
@@ -32,6 +59,44 @@ public class AsyncConfig implements AsyncConfigurer {
         return executor;
     }
 
+    // Workers draining the email outbox, one per pooled SMTP connection.
+    // In virtual thread mode they park on SMTP and database I/O, still capped at the connection count
+    @Bean
+    public TaskExecutor emailDispatchExecutor(@Value("${email.smtp.pool-size:2}") int poolSize) {
+        if (virtualThreads) {
+            SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("email-dispatch-");
+            executor.setVirtualThreads(true);
+            executor.setConcurrencyLimit(poolSize);
+            executor.setTaskTerminationTimeout(30_000);
+            return executor;
+        }
+
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize);
+        executor.setThreadNamePrefix("email-dispatch-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    // Signature checks for batch token introspection, CPU bound so sized to the cores.
+    // When saturated the request thread verifies its own tokens instead of failing
+    @Bean
+    public ThreadPoolTaskExecutor tokenVerificationExecutor(
+            @Value("${introspection.pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int poolSize) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(poolSize * 4);
+        executor.setThreadNamePrefix("token-verify-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.initialize();
+        return executor;
+    }
+
     // Handle exceptions in async methods
     @Override
     public AsyncUncaughtExceptionHandler getAsyncUncaughtExceptionHandler() {
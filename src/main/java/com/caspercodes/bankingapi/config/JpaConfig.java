@@ -0,0 +1,44 @@
+package com.caspercodes.bankingapi.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/*
+  JDBC batching for Hibernate writes. Inserts and updates are grouped per statement and sent
+  in batches, and the Postgres driver rewrites a batch of inserts into multi-row INSERTs.
+  Needs sequence ids, see IdAllocation
+ */
+@Configuration
+@Slf4j
+public class JpaConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer jdbcBatchingCustomizer(@Value("${jpa.batch-size:50}") int batchSize) {
+        return properties -> {
+            properties.put("hibernate.jdbc.batch_size", batchSize);
+            properties.put("hibernate.order_inserts", true);
+            properties.put("hibernate.order_updates", true);
+            properties.put("hibernate.jdbc.batch_versioned_data", true);
+            log.info("Hibernate JDBC batching enabled with batch size: {}", batchSize);
+        };
+    }
+
+    // Static so it does not force early initialisation of this configuration
+    @Bean
+    public static BeanPostProcessor batchedInsertRewriter() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessBeforeInitialization(Object bean, String beanName) {
+                if (bean instanceof HikariDataSource dataSource) {
+                    dataSource.addDataSourceProperty("reWriteBatchedInserts", "true");
+                }
+                return bean;
+            }
+        };
+    }
+}
@@ -5,11 +5,15 @@ import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.ClassPathResource;
 import org.springframework.data.redis.connection.RedisConnectionFactory;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.data.redis.serializer.GenericJackson2JsonRedisSerializer;
 import org.springframework.data.redis.serializer.StringRedisSerializer;
 
+import java.util.List;
+
 @Configuration
 public class RedisConfig {
 
@@ -40,4 +44,45 @@ public class RedisConfig {
         template.afterPropertiesSet();
         return template;
     }
+
+    // Plain string template for OTP hashes, values are never routed through the JSON serializer
+    @Bean
+    public RedisTemplate<String, String> otpRedisTemplate(RedisConnectionFactory connectionFactory) {
+        RedisTemplate<String, String> template = new RedisTemplate<>();
+        template.setConnectionFactory(connectionFactory);
+
+        StringRedisSerializer serializer = new StringRedisSerializer();
+        template.setKeySerializer(serializer);
+        template.setValueSerializer(serializer);
+        template.setHashKeySerializer(serializer);
+        template.setHashValueSerializer(serializer);
+
+        template.afterPropertiesSet();
+        return template;
+    }
+
+    // Writes OTP state in its hash layout, see scripts/otp-store.lua
+    @Bean
+    public RedisScript<Long> otpStoreScript() {
+        return RedisScript.of(new ClassPathResource("scripts/otp-store.lua"), Long.class);
+    }
+
+    // Checks, counts and locks OTP attempts server side, see scripts/otp-verify.lua
+    @Bean
+    @SuppressWarnings("rawtypes")
+    public RedisScript<List> otpVerifyScript() {
+        return RedisScript.of(new ClassPathResource("scripts/otp-verify.lua"), List.class);
+    }
+
+    // Sliding window request limits, see scripts/rate-limit.lua
+    @Bean
+    public RedisScript<Long> rateLimitScript() {
+        return RedisScript.of(new ClassPathResource("scripts/rate-limit.lua"), Long.class);
+    }
+
+    // Failed login counting with progressive lockout, see scripts/login-failure.lua
+    @Bean
+    public RedisScript<Long> loginFailureScript() {
+        return RedisScript.of(new ClassPathResource("scripts/login-failure.lua"), Long.class);
+    }
 }
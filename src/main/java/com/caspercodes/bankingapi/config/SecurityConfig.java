@@ -1,8 +1,17 @@
 package com.caspercodes.bankingapi.config;
 
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.security.BcryptStrengthCalibrator;
+import com.caspercodes.bankingapi.security.BoundedPasswordEncoder;
+import com.caspercodes.bankingapi.security.IdempotencyFilter;
+import com.caspercodes.bankingapi.security.JwtAuthenticationFilter;
+import com.caspercodes.bankingapi.security.RateLimitFilter;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
@@ -11,42 +20,105 @@ import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
 import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.DelegatingPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
+import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
+
+import java.util.Map;
 
 @Configuration
 @EnableWebSecurity
 @RequiredArgsConstructor
+@Slf4j
 public class SecurityConfig {
 
+    private static final String BCRYPT_ID = "bcrypt";
+
     private final UserDetailsService userDetailsService;
 
+    private final UserDetailsPasswordService userDetailsPasswordService;
+
+    private final JwtAuthenticationFilter jwtAuthenticationFilter;
+
+    private final RateLimitFilter rateLimitFilter;
+
+    private final IdempotencyFilter idempotencyFilter;
+
+    // Under /api/auth/ but acting on the logged in user
+    private static final String [] AUTHENTICATED_AUTH_URLS = {
+            "/api/auth/logout-all"
+    };
+
+    private static final String [] ADMIN_URLS = {
+            "/api/admin/**"
+    };
+
+    // Token introspection reveals the state of any user's tokens, so only gateways and admins may call it
+    private static final String [] SERVICE_URLS = {
+            "/api/tokens/**"
+    };
+
     private static final String [] PUBLIC_URLS_FOR_NOW = {
             "/",
             "/api-docs/**",
             "/swagger-ui/**",
             "/swagger-ui.html",
-            "/api/auth/**"
+            "/api/auth/**",
+            "/.well-known/jwks.json"
     };
 
     @Bean
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         return http
                 .csrf(AbstractHttpConfigurer::disable)
-                .authorizeHttpRequests(auth -> auth.requestMatchers(PUBLIC_URLS_FOR_NOW)
+                .authorizeHttpRequests(auth -> auth.requestMatchers(AUTHENTICATED_AUTH_URLS)
+                        .authenticated()
+                        .requestMatchers(ADMIN_URLS)
+                        .hasRole(User.Role.ADMIN.name())
+                        .requestMatchers(SERVICE_URLS)
+                        .hasAnyRole(User.Role.SERVICE.name(), User.Role.ADMIN.name())
+                        .requestMatchers(PUBLIC_URLS_FOR_NOW)
                         .permitAll()
                         .anyRequest()
                         .authenticated()
                 )
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .exceptionHandling(exceptions -> exceptions
+                        .authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+                .addFilterBefore(jwtAuthenticationFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterBefore(rateLimitFilter, JwtAuthenticationFilter.class)
+                // After authentication so keys are scoped to the caller
+                .addFilterAfter(idempotencyFilter, JwtAuthenticationFilter.class)
                 .build();
     }
 
+    /*
+      BCrypt behind a delegating encoder, so hashes carry an {id} prefix and old hashes
+      (no prefix or lower strength) are rehashed on the next successful login.
+      Use password.bcrypt.strength=auto to calibrate the strength to password.bcrypt.target-millis
+     */
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public BoundedPasswordEncoder passwordEncoder(
+            @Value("${password.bcrypt.strength:10}") String strength,
+            @Value("${password.bcrypt.target-millis:250}") long targetMillis,
+            @Value("${password.hashing.pool-size:#{T(java.lang.Runtime).getRuntime().availableProcessors()}}") int poolSize,
+            @Value("${password.hashing.queue-capacity:64}") int queueCapacity) {
+        int bcryptStrength = "auto".equalsIgnoreCase(strength)
+                ? BcryptStrengthCalibrator.calibrate(targetMillis, 10, 14)
+                : Integer.parseInt(strength);
+
+        BCryptPasswordEncoder bcrypt = new BCryptPasswordEncoder(bcryptStrength);
+        DelegatingPasswordEncoder delegating = new DelegatingPasswordEncoder(BCRYPT_ID, Map.of(BCRYPT_ID, bcrypt));
+        // Hashes stored before the {bcrypt} prefix was introduced
+        delegating.setDefaultPasswordEncoderForMatches(bcrypt);
+
+        log.info("Password encoder initialized with BCrypt strength: {}", bcryptStrength);
+        return new BoundedPasswordEncoder(delegating, poolSize, queueCapacity);
     }
 
     @Bean
@@ -55,10 +127,12 @@ public class SecurityConfig {
     }
 
     @Bean
-    public AuthenticationProvider authenticationProvider() {
+    public AuthenticationProvider authenticationProvider(PasswordEncoder passwordEncoder) {
         DaoAuthenticationProvider provider = new DaoAuthenticationProvider();
         provider.setUserDetailsService(userDetailsService);
-        provider.setPasswordEncoder(passwordEncoder());
+        provider.setPasswordEncoder(passwordEncoder);
+        // Stores the new hash when passwordEncoder.upgradeEncoding says the old one is outdated
+        provider.setUserDetailsPasswordService(userDetailsPasswordService);
         return provider;
     }
 }
\ No newline at end of file
@@ -0,0 +1,74 @@
+package com.caspercodes.bankingapi.controller;
+
+import com.caspercodes.bankingapi.dto.AccountBalanceDTO;
+import com.caspercodes.bankingapi.dto.AccountResponseDTO;
+import com.caspercodes.bankingapi.dto.JournalEntryDTO;
+import com.caspercodes.bankingapi.dto.OpenAccountRequestDTO;
+import com.caspercodes.bankingapi.security.JwtPrincipal;
+import com.caspercodes.bankingapi.service.AccountService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/accounts")
+@Slf4j
+@RequiredArgsConstructor
+@Tag(name = "Accounts", description = "Customer accounts, balances and statements")
+public class AccountController {
+
+    private final AccountService accountService;
+
+    @PostMapping
+    @Operation(summary = "Open account", description = "Opens a new account in the given currency for the current user.")
+    public ResponseEntity<AccountResponseDTO> openAccount(@AuthenticationPrincipal JwtPrincipal principal,
+                                                          @Valid @RequestBody OpenAccountRequestDTO request) {
+        log.info("Open account request for: {}", principal.getEmail());
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(accountService.openAccount(principal.getEmail(), request.getCurrency()));
+    }
+
+    @GetMapping
+    @Operation(summary = "List accounts", description = "Accounts of the current user.")
+    public ResponseEntity<List<AccountResponseDTO>> listAccounts(@AuthenticationPrincipal JwtPrincipal principal) {
+        return ResponseEntity.ok(accountService.listAccounts(principal.getEmail()));
+    }
+
+    @GetMapping("/{accountNumber}")
+    @Operation(summary = "Get account", description = "Balance and status of one of the current user's accounts.")
+    public ResponseEntity<AccountResponseDTO> getAccount(@AuthenticationPrincipal JwtPrincipal principal,
+                                                         @PathVariable String accountNumber) {
+        return ResponseEntity.ok(accountService.getAccount(principal.getEmail(), accountNumber));
+    }
+
+    @GetMapping("/{accountNumber}/balance")
+    @Operation(summary = "Account balance",
+            description = "Current balance, or the balance at the given time when 'at' is set (ISO date-time).")
+    public ResponseEntity<AccountBalanceDTO> getBalance(@AuthenticationPrincipal JwtPrincipal principal,
+                                                        @PathVariable String accountNumber,
+                                                        @RequestParam(required = false)
+                                                        @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime at) {
+        if (at == null) {
+            return ResponseEntity.ok(accountService.getBalance(principal.getEmail(), accountNumber));
+        }
+        return ResponseEntity.ok(accountService.getBalanceAt(principal.getEmail(), accountNumber, at));
+    }
+
+    @GetMapping("/{accountNumber}/entries")
+    @Operation(summary = "Account entries", description = "Latest journal entries of the account, newest first.")
+    public ResponseEntity<List<JournalEntryDTO>> getEntries(@AuthenticationPrincipal JwtPrincipal principal,
+                                                            @PathVariable String accountNumber,
+                                                            @RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(accountService.getEntries(principal.getEmail(), accountNumber, limit));
+    }
+}
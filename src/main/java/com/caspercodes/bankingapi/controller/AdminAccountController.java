@@ -0,0 +1,35 @@
+package com.caspercodes.bankingapi.controller;
+
+import com.caspercodes.bankingapi.dto.DepositRequestDTO;
+import com.caspercodes.bankingapi.dto.TransferResponseDTO;
+import com.caspercodes.bankingapi.security.JwtPrincipal;
+import com.caspercodes.bankingapi.service.TransferService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/admin/accounts/")
+@Slf4j
+@RequiredArgsConstructor
+@Tag(name = "Admin")
+public class AdminAccountController {
+
+    private final TransferService transferService;
+
+    @PostMapping("{accountNumber}/deposits")
+    @Operation(summary = "Deposit funds", description = "Credits a customer account from the bank's clearing account in the account's currency.")
+    public ResponseEntity<TransferResponseDTO> deposit(@AuthenticationPrincipal JwtPrincipal principal,
+                                                       @PathVariable String accountNumber,
+                                                       @Valid @RequestBody DepositRequestDTO request) {
+        log.info("Deposit request for account: {}", accountNumber);
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(transferService.deposit(principal.getEmail(), accountNumber, request));
+    }
+}
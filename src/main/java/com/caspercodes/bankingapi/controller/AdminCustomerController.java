@@ -0,0 +1,43 @@
+package com.caspercodes.bankingapi.controller;
+
+import com.caspercodes.bankingapi.dto.CustomerImportResultDTO;
+import com.caspercodes.bankingapi.exception.InvalidImportException;
+import com.caspercodes.bankingapi.service.CustomerOnboardingService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/admin/customers/")
+@Slf4j
+@RequiredArgsConstructor
+@Tag(name = "Admin", description = "Administrative customer operations")
+public class AdminCustomerController {
+
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final CustomerOnboardingService customerOnboardingService;
+
+    // The body is streamed from the request, never buffered whole
+    @PostMapping(value = "import", consumes = {"text/csv", NDJSON})
+    @Operation(summary = "Import customers", description = "Bulk onboards customers from a CSV (with header) or NDJSON upload and reports failed rows.")
+    public ResponseEntity<CustomerImportResultDTO> importCustomers(HttpServletRequest request) throws IOException {
+        MediaType contentType = MediaType.parseMediaType(request.getContentType());
+        CustomerOnboardingService.Format format = contentType.isCompatibleWith(MediaType.parseMediaType(NDJSON))
+                ? CustomerOnboardingService.Format.NDJSON
+                : CustomerOnboardingService.Format.CSV;
+        if (contentType.getCharset() != null && !"UTF-8".equalsIgnoreCase(contentType.getCharset().name())) {
+            throw new InvalidImportException("Customer imports must be UTF-8");
+        }
+
+        log.info("Customer import request, format: {}", format);
+        return ResponseEntity.ok(customerOnboardingService.importCustomers(request.getInputStream(), format));
+    }
+}
@@ -1,6 +1,7 @@
 package com.caspercodes.bankingapi.controller;
 
 import com.caspercodes.bankingapi.dto.*;
+import com.caspercodes.bankingapi.security.JwtPrincipal;
 import com.caspercodes.bankingapi.service.AuthService;
 import com.caspercodes.bankingapi.service.OtpService;
 import io.swagger.v3.oas.annotations.Operation;
@@ -10,6 +11,7 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
 @RestController
@@ -66,6 +68,14 @@ public class AuthController {
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("logout-all")
+    @Operation(summary = "Logout all devices", description = "Revokes every access and refresh token of the current user.")
+    public ResponseEntity<Void> logoutAll(@AuthenticationPrincipal JwtPrincipal principal) {
+        log.info("Logout all request for email: {}", principal.getEmail());
+        authService.logoutAll(principal.getEmail());
+        return ResponseEntity.noContent().build();
+    }
+
     @PostMapping("logout")
     @Operation(summary = "User logout", description = "Revoke refresh token and logout user.")
     public ResponseEntity<Void> logout(@RequestBody RefreshTokenRequestDTO request) {
@@ -0,0 +1,32 @@
+package com.caspercodes.bankingapi.controller;
+
+import com.caspercodes.bankingapi.dto.TokenIntrospectionRequestDTO;
+import com.caspercodes.bankingapi.dto.TokenIntrospectionResponseDTO;
+import com.caspercodes.bankingapi.service.TokenIntrospectionService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/tokens/")
+@Slf4j
+@RequiredArgsConstructor
+@Tag(name = "Tokens", description = "Token validation for gateways and internal services")
+public class TokenController {
+
+    private final TokenIntrospectionService tokenIntrospectionService;
+
+    @PostMapping("introspect")
+    @Operation(summary = "Introspect tokens", description = "Validates up to "
+            + TokenIntrospectionRequestDTO.MAX_TOKENS + " access or refresh tokens and returns their state in request order.")
+    public ResponseEntity<TokenIntrospectionResponseDTO> introspect(@Valid @RequestBody TokenIntrospectionRequestDTO request) {
+        log.info("Introspection request for {} token(s)", request.getTokens().size());
+        return ResponseEntity.ok(TokenIntrospectionResponseDTO.builder()
+                .results(tokenIntrospectionService.introspect(request.getTokens()))
+                .build());
+    }
+}
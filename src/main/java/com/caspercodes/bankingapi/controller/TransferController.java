@@ -0,0 +1,33 @@
+package com.caspercodes.bankingapi.controller;
+
+import com.caspercodes.bankingapi.dto.TransferRequestDTO;
+import com.caspercodes.bankingapi.dto.TransferResponseDTO;
+import com.caspercodes.bankingapi.security.JwtPrincipal;
+import com.caspercodes.bankingapi.service.TransferService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/transfers")
+@Slf4j
+@RequiredArgsConstructor
+@Tag(name = "Transfers", description = "Fund transfers between accounts")
+public class TransferController {
+
+    private final TransferService transferService;
+
+    @PostMapping
+    @Operation(summary = "Transfer funds", description = "Moves money from one of the current user's accounts to another account in the same currency.")
+    public ResponseEntity<TransferResponseDTO> transfer(@AuthenticationPrincipal JwtPrincipal principal,
+                                                        @Valid @RequestBody TransferRequestDTO request) {
+        log.info("Transfer request from account: {}", request.getFromAccountNumber());
+        return ResponseEntity.status(HttpStatus.CREATED).body(transferService.transfer(principal.getEmail(), request));
+    }
+}
@@ -0,0 +1,23 @@
+package com.caspercodes.bankingapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountBalanceDTO {
+    private String accountNumber;
+    private String currency;
+    private BigDecimal balance;
+    // Journal sequence number the balance includes, 0 before the first posting
+    private long sequenceNo;
+    // Requested point in time, null for the current balance
+    private LocalDateTime asOf;
+}
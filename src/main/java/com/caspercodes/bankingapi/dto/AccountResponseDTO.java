@@ -0,0 +1,33 @@
+package com.caspercodes.bankingapi.dto;
+
+import com.caspercodes.bankingapi.model.Account;
+import com.caspercodes.bankingapi.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class AccountResponseDTO {
+    private String accountNumber;
+    private String currency;
+    private BigDecimal balance;
+    private Account.Status status;
+    private LocalDateTime createdAt;
+
+    public static AccountResponseDTO from(Account account) {
+        return AccountResponseDTO.builder()
+                .accountNumber(account.getAccountNumber())
+                .currency(account.getCurrency())
+                .balance(Money.toDecimal(account.getBalance(), account.getCurrency()))
+                .status(account.getStatus())
+                .createdAt(account.getCreatedAt())
+                .build();
+    }
+}
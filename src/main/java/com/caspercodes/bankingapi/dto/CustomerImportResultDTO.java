@@ -0,0 +1,37 @@
+package com.caspercodes.bankingapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CustomerImportResultDTO {
+
+    private int total;
+
+    private int imported;
+
+    private int failed;
+
+    private List<RowError> errors;
+
+    // True when more rows failed than are listed in errors
+    private boolean errorsTruncated;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class RowError {
+        // 1-based line in the uploaded file
+        private long line;
+        private String email;
+        private String message;
+    }
+}
@@ -0,0 +1,28 @@
+package com.caspercodes.bankingapi.dto;
+
+import jakarta.validation.constraints.Digits;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DepositRequestDTO {
+
+    @NotNull(message = "Amount is required")
+    @Positive(message = "Amount must be positive")
+    // The most any supported currency has, Money rejects more decimals than the account's currency allows
+    @Digits(integer = 16, fraction = 3, message = "Amount must have at most 3 decimal places")
+    private BigDecimal amount;
+
+    @Size(max = 140, message = "Description must be at most 140 characters")
+    private String description;
+}
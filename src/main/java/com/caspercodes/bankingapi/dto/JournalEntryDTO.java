@@ -0,0 +1,38 @@
+package com.caspercodes.bankingapi.dto;
+
+import com.caspercodes.bankingapi.model.JournalEntry;
+import com.caspercodes.bankingapi.util.Money;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class JournalEntryDTO {
+    private UUID transferId;
+    private JournalEntry.Direction direction;
+    private BigDecimal amount;
+    private String currency;
+    private BigDecimal balanceAfter;
+    private String description;
+    private LocalDateTime postedAt;
+
+    public static JournalEntryDTO from(JournalEntry entry) {
+        return JournalEntryDTO.builder()
+                .transferId(entry.getTransferId())
+                .direction(entry.getDirection())
+                .amount(Money.toDecimal(entry.getAmount(), entry.getCurrency()))
+                .currency(entry.getCurrency())
+                .balanceAfter(Money.toDecimal(entry.getBalanceAfter(), entry.getCurrency()))
+                .description(entry.getDescription())
+                .postedAt(entry.getCreatedAt())
+                .build();
+    }
+}
@@ -0,0 +1,35 @@
+package com.caspercodes.bankingapi.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.Instant;
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TokenIntrospectionResponseDTO {
+
+    // In the order the tokens were sent
+    private List<Result> results;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class Result {
+        private boolean active;
+        private String tokenType;
+        private String subject;
+        private Long userId;
+        private Instant expiresAt;
+        // Why an inactive token was rejected: invalid, expired or revoked
+        private String reason;
+    }
+}
@@ -0,0 +1,25 @@
+package com.caspercodes.bankingapi.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class TransferResponseDTO {
+    private UUID transferId;
+    private String fromAccountNumber;
+    private String toAccountNumber;
+    private BigDecimal amount;
+    private String currency;
+    // Customer account balance after the posting, the source of a transfer or the destination of a deposit
+    private BigDecimal balanceAfter;
+    private LocalDateTime postedAt;
+}
@@ -0,0 +1,7 @@
+package com.caspercodes.bankingapi.exception;
+
+public class AccountNotFoundException extends RuntimeException {
+    public AccountNotFoundException(String message) {
+        super(message);
+    }
+}
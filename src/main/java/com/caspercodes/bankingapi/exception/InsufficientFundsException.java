@@ -0,0 +1,7 @@
+package com.caspercodes.bankingapi.exception;
+
+public class InsufficientFundsException extends RuntimeException {
+    public InsufficientFundsException(String message) {
+        super(message);
+    }
+}
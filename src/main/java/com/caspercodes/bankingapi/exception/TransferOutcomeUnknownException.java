@@ -0,0 +1,7 @@
+package com.caspercodes.bankingapi.exception;
+
+public class TransferOutcomeUnknownException extends RuntimeException {
+    public TransferOutcomeUnknownException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package com.caspercodes.bankingapi.exception;
+
+public class TransferUnavailableException extends RuntimeException {
+    public TransferUnavailableException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.caspercodes.bankingapi.exception;
+
+public class UnsupportedCurrencyException extends RuntimeException {
+    public UnsupportedCurrencyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,84 @@
+package com.caspercodes.bankingapi.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.UpdateTimestamp;
+
+import java.time.LocalDateTime;
+
+/*
+  Customer or clearing account. The balance is a running total of the account's journal entries, maintained in the
+  same transaction as every posting so reading it never touches the journal. It only changes in LedgerPoster,
+  under the account's row lock, which also numbers the account's entries through postingSequence.
+  Clearing accounts are the bank's side of deposits, one per currency with no owner. They are the only
+  accounts allowed to go negative, their balance is minus the money the bank has put into the ledger
+ */
+@Entity
+@Table(name = "accounts", indexes = {
+        @Index(name = "idx_account_owner_id", columnList = "owner_id")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class Account {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "accounts_seq")
+    @SequenceGenerator(name = "accounts_seq", sequenceName = "accounts_seq", allocationSize = IdAllocation.SIZE)
+    private Long id;
+
+    @Column(name = "account_number", nullable = false, unique = true, length = 10)
+    private String accountNumber;
+
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id")
+    private User owner;
+
+    // ISO 4217 code
+    @Column(nullable = false, length = 3)
+    private String currency;
+
+    // Minor units of the currency, see Money
+    @Column(name = "balance_minor", nullable = false)
+    @Builder.Default
+    private long balance = 0;
+
+    // Sequence number of the account's latest journal entry, 0 before the first posting
+    @Column(name = "posting_sequence", nullable = false)
+    @Builder.Default
+    private long postingSequence = 0;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private Type type = Type.CUSTOMER;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private Status status = Status.ACTIVE;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @UpdateTimestamp
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum Type {
+        CUSTOMER,
+        CLEARING
+    }
+
+    public enum Status {
+        ACTIVE,
+        FROZEN,
+        CLOSED
+    }
+}
@@ -0,0 +1,46 @@
+package com.caspercodes.bankingapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+
+/*
+  Balance of an account as of one of its journal sequence numbers, written by LedgerPoster every
+  checkpoint interval postings in the posting's own transaction. A historical balance is the nearest
+  checkpoint before the requested time plus the entries after it, never more than one interval of them
+ */
+@Entity
+@Immutable
+@Table(name = "balance_checkpoints", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_balance_checkpoint_account_sequence", columnNames = {"account_id", "sequence_no"})
+}, indexes = {
+        @Index(name = "idx_balance_checkpoint_account_created_at", columnList = "account_id, created_at")
+})
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class BalanceCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "balance_checkpoints_seq")
+    @SequenceGenerator(name = "balance_checkpoints_seq", sequenceName = "balance_checkpoints_seq", allocationSize = IdAllocation.SIZE)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false, updatable = false)
+    private Long accountId;
+
+    // Journal sequence number the balance includes
+    @Column(name = "sequence_no", nullable = false, updatable = false)
+    private long sequenceNo;
+
+    // Minor units of the account's currency
+    @Column(name = "balance_minor", nullable = false, updatable = false)
+    private long balance;
+
+    // Posting time of the entry at sequenceNo
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,78 @@
+package com.caspercodes.bankingapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.time.LocalDateTime;
+
+/*
+  Email written at request time and delivered later by EmailOutboxDispatcher.
+  Rows are deleted once sent, so the table only holds pending and dead messages
+ */
+@Entity
+@Table(name = "email_outbox", indexes = {
+        @Index(name = "idx_email_outbox_status_next_attempt", columnList = "status, next_attempt_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class EmailOutboxMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "email_outbox_seq")
+    @SequenceGenerator(name = "email_outbox_seq", sequenceName = "email_outbox_seq", allocationSize = IdAllocation.SIZE)
+    private Long id;
+
+    @Column(nullable = false)
+    private String recipient;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 30)
+    private EmailType type;
+
+    // OTP code or first name depending on the type, cleared when the message is given up on or the OTP expires
+    @Column(length = 150)
+    private String payload;
+
+    @Column(name = "expiry_minutes")
+    private Integer expiryMinutes;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private Status status = Status.PENDING;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "next_attempt_at", nullable = false)
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @CreationTimestamp
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    // An OTP email is worthless once its code has expired
+    public boolean isExpired(LocalDateTime now) {
+        return expiryMinutes != null && createdAt != null
+                && !createdAt.plusMinutes(expiryMinutes).isAfter(now);
+    }
+
+    public enum EmailType {
+        REGISTRATION_OTP,
+        LOGIN_OTP,
+        WELCOME
+    }
+
+    public enum Status {
+        PENDING,
+        FAILED
+    }
+}
@@ -0,0 +1,14 @@
+package com.caspercodes.bankingapi.model;
+
+/*
+  Block size of the pooled sequence generators. Hibernate reserves this many ids per sequence call,
+  so inserts need no round trip per row and can be batched, which IDENTITY columns prevent.
+  The database sequences must use the same INCREMENT BY, see db/migrations/004-sequence-ids-and-roles.sql
+ */
+public final class IdAllocation {
+
+    public static final int SIZE = 50;
+
+    private IdAllocation() {
+    }
+}
@@ -0,0 +1,69 @@
+package com.caspercodes.bankingapi.model;
+
+import jakarta.persistence.*;
+import lombok.*;
+import org.hibernate.annotations.Immutable;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+  One side of a double entry posting. A transfer writes a DEBIT on the source and a CREDIT on the
+  destination with the same transfer id, so the entries of a transfer always sum to zero.
+  Append only: entries are never updated or deleted, corrections are new transfers
+ */
+@Entity
+@Immutable
+@Table(name = "journal_entries", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_journal_entry_account_sequence", columnNames = {"account_id", "sequence_no"})
+}, indexes = {
+        @Index(name = "idx_journal_entry_transfer_id", columnList = "transfer_id")
+})
+@Getter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class JournalEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "journal_entries_seq")
+    @SequenceGenerator(name = "journal_entries_seq", sequenceName = "journal_entries_seq", allocationSize = IdAllocation.SIZE)
+    private Long id;
+
+    @Column(name = "transfer_id", nullable = false, updatable = false)
+    private UUID transferId;
+
+    @Column(name = "account_id", nullable = false, updatable = false)
+    private Long accountId;
+
+    // Position in the account's journal, gapless and starting at 1
+    @Column(name = "sequence_no", nullable = false, updatable = false)
+    private long sequenceNo;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, updatable = false, length = 6)
+    private Direction direction;
+
+    // Minor units, always positive, the direction gives the sign
+    @Column(name = "amount_minor", nullable = false, updatable = false)
+    private long amount;
+
+    @Column(nullable = false, updatable = false, length = 3)
+    private String currency;
+
+    // Account balance right after this entry, in minor units
+    @Column(name = "balance_after_minor", nullable = false, updatable = false)
+    private long balanceAfter;
+
+    @Column(updatable = false, length = 140)
+    private String description;
+
+    // Set by the poster, both entries of a transfer share it
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private LocalDateTime createdAt;
+
+    public enum Direction {
+        DEBIT,
+        CREDIT
+    }
+}
@@ -21,6 +21,7 @@ public class OtpData implements Serializable {
     private String email;
     private OtpType type;
 
+    // Stored by ordinal in Redis (see OtpRepository), only append new values
     public enum OtpType {
         REGISTRATION,
         LOGIN,
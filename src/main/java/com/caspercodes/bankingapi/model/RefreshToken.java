@@ -8,7 +8,10 @@ import org.hibernate.annotations.CreationTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "refresh_tokens")
+@Table(name = "refresh_tokens", indexes = {
+        @Index(name = "idx_refresh_token_user_id", columnList = "user_id"),
+        @Index(name = "idx_refresh_token_expires_at", columnList = "expires_at")
+})
 @Getter
 @Setter
 @NoArgsConstructor
@@ -17,11 +20,13 @@ import java.time.LocalDateTime;
 public class RefreshToken {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "refresh_tokens_seq")
+    @SequenceGenerator(name = "refresh_tokens_seq", sequenceName = "refresh_tokens_seq", allocationSize = IdAllocation.SIZE)
     private Long id;
 
-    @Column(nullable = false, unique = true, length = 500)
-    private String token;
+    // SHA-256 of the refresh token (TokenHasher), the raw token is never persisted
+    @Column(name = "token_hash", nullable = false, unique = true, length = 64, columnDefinition = "char(64)")
+    private String tokenHash;
 
     //Many to One column because many users can have more than one refresh token for multiple devices
     @JsonIgnore //TODO remove if issues arise, I added JSON IGNORE to properly test the API with Postman
@@ -39,4 +44,8 @@ public class RefreshToken {
     @Column(name = "revoked")
     @Builder.Default
     private Boolean revoked = false;
+
+    // Set by the revoke queries, the purge keeps revoked tokens for a retention window from this time
+    @Column(name = "revoked_at")
+    private LocalDateTime revokedAt;
 }
@@ -1,5 +1,6 @@
 package com.caspercodes.bankingapi.model;
 
+import com.caspercodes.bankingapi.service.UserCacheInvalidator;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
@@ -8,6 +9,7 @@ import org.hibernate.annotations.UpdateTimestamp;
 import java.time.LocalDateTime;
 
 @Entity
+@EntityListeners(UserCacheInvalidator.class)
 @Table(name = "users", indexes = {
         @Index(name = "idx_user_email", columnList = "email")
 })
@@ -19,7 +21,8 @@ import java.time.LocalDateTime;
 public class User {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_seq")
+    @SequenceGenerator(name = "users_seq", sequenceName = "users_seq", allocationSize = IdAllocation.SIZE)
     private Long id;
 
     @Column(name = "first_name", nullable = false, length = 150)
@@ -48,10 +51,21 @@ public class User {
     @Column(name = "email_verified_at")
     private LocalDateTime emailVerifiedAt;
 
+    // No longer written, failed logins are counted in Redis by LoginAttemptService
     @Column(name = "failed_login_attempts")
     @Builder.Default //For fields with default values
     private Integer failedLoginAttempts = 0;
 
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private Role role = Role.USER;
+
+    // Bumped to invalidate every token issued before, see TokenVersionService
+    @Column(name = "token_version", nullable = false)
+    @Builder.Default
+    private Integer tokenVersion = 0;
+
     @Column(name = "last_login_at")
     private LocalDateTime lastLoginAt;
 
@@ -62,4 +76,11 @@ public class User {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private LocalDateTime updatedAt;
+
+    public enum Role {
+        USER,
+        ADMIN,
+        // Gateways and internal services calling the token endpoints
+        SERVICE
+    }
 }
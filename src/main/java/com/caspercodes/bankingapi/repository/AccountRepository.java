@@ -0,0 +1,34 @@
+package com.caspercodes.bankingapi.repository;
+
+import com.caspercodes.bankingapi.model.Account;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface AccountRepository extends JpaRepository<Account, Long> {
+    Optional<Account> findByAccountNumber(String accountNumber);
+    boolean existsByAccountNumber(String accountNumber);
+    List<Account> findAllByOwnerIdOrderById(Long ownerId);
+
+    //Id and currency without loading the account, enough to convert the amount and pick lock stripes before the transaction
+    @Query("SELECT a.id AS id, a.currency AS currency FROM Account a WHERE a.accountNumber = :accountNumber")
+    Optional<AccountRef> findRefByAccountNumber(@Param("accountNumber") String accountNumber);
+
+    //SELECT ... FOR UPDATE in id order, every transfer locks rows in the same order so two transfers cannot deadlock
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM Account a WHERE a.id IN :ids ORDER BY a.id")
+    List<Account> lockAllByIdInOrder(@Param("ids") Collection<Long> ids);
+
+    interface AccountRef {
+        Long getId();
+        String getCurrency();
+    }
+}
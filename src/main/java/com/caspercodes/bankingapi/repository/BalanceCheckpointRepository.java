@@ -0,0 +1,15 @@
+package com.caspercodes.bankingapi.repository;
+
+import com.caspercodes.bankingapi.model.BalanceCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface BalanceCheckpointRepository extends JpaRepository<BalanceCheckpoint, Long> {
+    //Nearest checkpoint at or before the given time
+    Optional<BalanceCheckpoint> findFirstByAccountIdAndCreatedAtLessThanEqualOrderByCreatedAtDescSequenceNoDesc(
+            Long accountId, LocalDateTime at);
+}
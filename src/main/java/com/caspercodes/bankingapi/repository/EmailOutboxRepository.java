@@ -0,0 +1,38 @@
+package com.caspercodes.bankingapi.repository;
+
+import com.caspercodes.bankingapi.model.EmailOutboxMessage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EmailOutboxRepository extends JpaRepository<EmailOutboxMessage, Long> {
+
+    // Due messages, skipping rows another dispatcher has already locked
+    @Query(value = """
+            SELECT * FROM email_outbox
+            WHERE status = 'PENDING' AND next_attempt_at <= :now
+            ORDER BY next_attempt_at
+            LIMIT :limit
+            FOR UPDATE SKIP LOCKED
+            """, nativeQuery = true)
+    List<EmailOutboxMessage> lockDueBatch(@Param("now") LocalDateTime now, @Param("limit") int limit);
+
+    // Gives up on OTP emails whose code has already expired, dropping the code with them
+    @Modifying
+    @Query(value = """
+            UPDATE email_outbox
+            SET status = 'FAILED', payload = NULL, last_error = :reason
+            WHERE status = 'PENDING'
+              AND expiry_minutes IS NOT NULL
+              AND created_at + make_interval(mins => expiry_minutes) <= :now
+            """, nativeQuery = true)
+    int expireStaleOtps(@Param("now") LocalDateTime now, @Param("reason") String reason);
+
+    long countByStatus(EmailOutboxMessage.Status status);
+}
@@ -0,0 +1,58 @@
+package com.caspercodes.bankingapi.repository;
+
+import com.caspercodes.bankingapi.model.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+@Repository
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, String> {
+
+    //Claim the key, or take over a record that has expired. Returns 1 when this caller owns the key
+    @Modifying
+    @Transactional
+    @Query(value = """
+            INSERT INTO idempotency_records (key_hash, fingerprint, state, created_at, expires_at)
+            VALUES (:keyHash, :fingerprint, 'IN_PROGRESS', :now, :expiresAt)
+            ON CONFLICT (key_hash) DO UPDATE
+                SET fingerprint = EXCLUDED.fingerprint, state = 'IN_PROGRESS', response_status = NULL,
+                    response_content_type = NULL, response_body = NULL,
+                    created_at = EXCLUDED.created_at, expires_at = EXCLUDED.expires_at
+                WHERE idempotency_records.expires_at < :now
+            """, nativeQuery = true)
+    int claim(@Param("keyHash") String keyHash,
+              @Param("fingerprint") String fingerprint,
+              @Param("now") LocalDateTime now,
+              @Param("expiresAt") LocalDateTime expiresAt);
+
+    @Modifying
+    @Transactional
+    @Query("""
+            UPDATE IdempotencyRecord r
+            SET r.state = com.caspercodes.bankingapi.model.IdempotencyRecord.State.COMPLETED,
+                r.responseStatus = :status, r.responseContentType = :contentType, r.responseBody = :body,
+                r.expiresAt = :expiresAt
+            WHERE r.keyHash = :keyHash
+            """)
+    int complete(@Param("keyHash") String keyHash,
+                 @Param("status") int status,
+                 @Param("contentType") String contentType,
+                 @Param("body") String body,
+                 @Param("expiresAt") LocalDateTime expiresAt);
+
+    //Give the key back after a server error, completed records are never released
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.keyHash = :keyHash AND r.state = com.caspercodes.bankingapi.model.IdempotencyRecord.State.IN_PROGRESS")
+    int release(@Param("keyHash") String keyHash);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
@@ -0,0 +1,39 @@
+package com.caspercodes.bankingapi.repository;
+
+import com.caspercodes.bankingapi.model.JournalEntry;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface JournalEntryRepository extends JpaRepository<JournalEntry, Long> {
+    List<JournalEntry> findByAccountIdOrderBySequenceNoDesc(Long accountId, Pageable pageable); //Newest first
+    List<JournalEntry> findByTransferId(UUID transferId);
+
+    //Net change and last sequence of the entries after a checkpoint up to a point in time,
+    //a range scan of at most one checkpoint interval on the (account_id, sequence_no) key
+    @Query("""
+            SELECT COALESCE(SUM(CASE WHEN e.direction = com.caspercodes.bankingapi.model.JournalEntry.Direction.CREDIT
+                                     THEN e.amount ELSE -e.amount END), 0L) AS change,
+                   MAX(e.sequenceNo) AS lastSequence
+            FROM JournalEntry e
+            WHERE e.accountId = :accountId
+              AND e.sequenceNo > :afterSequence AND e.sequenceNo <= :throughSequence
+              AND e.createdAt <= :at
+            """)
+    TailChange sumTail(@Param("accountId") Long accountId,
+                       @Param("afterSequence") long afterSequence,
+                       @Param("throughSequence") long throughSequence,
+                       @Param("at") LocalDateTime at);
+
+    interface TailChange {
+        Long getChange(); //Minor units
+        Long getLastSequence(); //Null when no entry matched
+    }
+}
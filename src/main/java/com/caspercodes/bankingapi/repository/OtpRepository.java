@@ -0,0 +1,124 @@
+package com.caspercodes.bankingapi.repository;
+
+import com.caspercodes.bankingapi.model.OtpData;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Stores OTP state as a small Redis hash:
+  c = code, a = attempts, t = OtpType ordinal, ca / ea = created and expiry time in epoch seconds.
+  The email is part of the key, so it is not stored again
+ */
+@Repository
+@RequiredArgsConstructor
+@Slf4j
+public class OtpRepository {
+
+    private static final String KEY_PREFIX = "otp:";
+
+    private static final String CODE = "c";
+    private static final String ATTEMPTS = "a";
+    private static final String TYPE = "t";
+    private static final String CREATED_AT = "ca";
+    private static final String EXPIRED_AT = "ea";
+
+    private static final OtpData.OtpType[] TYPES = OtpData.OtpType.values();
+
+    private final RedisTemplate<String, String> otpRedisTemplate;
+
+    private final RedisScript<Long> otpStoreScript;
+
+    // Only used to read keys written in the old polymorphic JSON format
+    private final RedisTemplate<String, Object> redisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    public static String key(String email) {
+        return KEY_PREFIX + email;
+    }
+
+    // Replaces the OTP for the email, expiring it after ttlSeconds
+    public void save(String email, OtpData otpData, long ttlSeconds) {
+        otpRedisTemplate.execute(otpStoreScript, List.of(key(email)),
+                otpData.getCode(),
+                String.valueOf(otpData.getAttempts()),
+                String.valueOf(otpData.getType().ordinal()),
+                String.valueOf(toEpochSecond(otpData.getCreatedAt())),
+                String.valueOf(toEpochSecond(otpData.getExpiredAt())),
+                String.valueOf(ttlSeconds));
+    }
+
+    public Optional<OtpData> findByEmail(String email) {
+        String key = key(email);
+        Map<Object, Object> fields;
+        try {
+            fields = otpRedisTemplate.opsForHash().entries(key);
+        } catch (DataAccessException e) {
+            // WRONGTYPE, the key still holds a legacy JSON value
+            return migrateLegacy(email, e);
+        }
+
+        if (fields.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(OtpData.builder()
+                .code((String) fields.get(CODE))
+                .attempts(Integer.parseInt((String) fields.get(ATTEMPTS)))
+                .type(TYPES[Integer.parseInt((String) fields.get(TYPE))])
+                .createdAt(fromEpochSecond((String) fields.get(CREATED_AT)))
+                .expiredAt(fromEpochSecond((String) fields.get(EXPIRED_AT)))
+                .email(email)
+                .build());
+    }
+
+    /*
+      Reads a value written by the JSON serializer and rewrites it in the hash layout with its remaining TTL.
+      Legacy keys live at most one OTP lifetime, so this path disappears shortly after deployment
+     */
+    private Optional<OtpData> migrateLegacy(String email, DataAccessException cause) {
+        String key = key(email);
+        Object raw;
+        try {
+            raw = redisTemplate.opsForValue().get(key);
+        } catch (DataAccessException e) {
+            e.addSuppressed(cause);
+            throw e;
+        }
+
+        if (raw == null) {
+            return Optional.empty();
+        }
+
+        OtpData otpData = raw instanceof OtpData ? (OtpData) raw : objectMapper.convertValue(raw, OtpData.class);
+        otpData.setEmail(email);
+
+        Long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
+        if (ttl != null && ttl > 0) {
+            save(email, otpData, ttl);
+            log.debug("Migrated legacy OTP entry for: {}", email);
+        }
+        return Optional.of(otpData);
+    }
+
+    private static long toEpochSecond(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault()).toEpochSecond();
+    }
+
+    private static LocalDateTime fromEpochSecond(String epochSecond) {
+        return LocalDateTime.ofInstant(Instant.ofEpochSecond(Long.parseLong(epochSecond)), ZoneId.systemDefault());
+    }
+}
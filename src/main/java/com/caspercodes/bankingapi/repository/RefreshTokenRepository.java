@@ -3,13 +3,76 @@ package com.caspercodes.bankingapi.repository;
 import com.caspercodes.bankingapi.model.RefreshToken;
 import com.caspercodes.bankingapi.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface RefreshTokenRepository extends JpaRepository<RefreshToken, Long> {
-    Optional<RefreshToken> findByToken(String token); //Find a token by its string value
+    Optional<RefreshToken> findByTokenHash(String tokenHash); //Find a token by its SHA-256 digest
     void deleteByUser(User user); //Delete tokens by user
-    boolean existsByToken(String token); //Check if a token exists for a user
+    boolean existsByTokenHash(String tokenHash); //Check if a token exists for a user
+
+    //Revoke the token only if it is still active and return its owner, in one statement
+    @Query(value = """
+            UPDATE refresh_tokens SET revoked = true, revoked_at = :now
+            WHERE token_hash = :tokenHash AND revoked = false AND expires_at > :now
+            RETURNING user_id
+            """, nativeQuery = true)
+    Optional<Long> revokeIfActive(@Param("tokenHash") String tokenHash, @Param("now") LocalDateTime now);
+
+    //State of a token that could not be rotated, used to tell reuse from expiry
+    @Query("SELECT r.user.id AS userId, r.revoked AS revoked, r.expiresAt AS expiresAt FROM RefreshToken r WHERE r.tokenHash = :tokenHash")
+    Optional<RefreshTokenState> findStateByTokenHash(@Param("tokenHash") String tokenHash);
+
+    //States of many tokens in one query, for batch introspection
+    @Query("SELECT r.tokenHash AS tokenHash, r.revoked AS revoked, r.expiresAt AS expiresAt FROM RefreshToken r WHERE r.tokenHash IN :tokenHashes")
+    List<RefreshTokenHashState> findAllByTokenHashIn(@Param("tokenHashes") Collection<String> tokenHashes);
+
+    //Revoke every active token of a user, the whole token family
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true, r.revokedAt = :now WHERE r.user.id = :userId AND r.revoked = false")
+    int revokeAllByUserId(@Param("userId") Long userId, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE RefreshToken r SET r.revoked = true, r.revokedAt = :now WHERE r.tokenHash = :tokenHash AND r.revoked = false")
+    int revokeByTokenHash(@Param("tokenHash") String tokenHash, @Param("now") LocalDateTime now);
+
+    //Delete one bounded batch of expired tokens and tokens revoked long enough ago, skipping rows locked by refreshes
+    @Modifying
+    @Transactional
+    @Query(value = """
+            DELETE FROM refresh_tokens WHERE id IN (
+                SELECT id FROM refresh_tokens
+                WHERE expires_at < :now OR (revoked = true AND revoked_at < :revokedBefore)
+                LIMIT :limit
+                FOR UPDATE SKIP LOCKED
+            )
+            """, nativeQuery = true)
+    int deletePurgeableBatch(@Param("now") LocalDateTime now,
+                             @Param("revokedBefore") LocalDateTime revokedBefore,
+                             @Param("limit") int limit);
+
+    interface RefreshTokenState {
+        Long getUserId();
+
+        Boolean getRevoked();
+
+        LocalDateTime getExpiresAt();
+    }
+
+    interface RefreshTokenHashState {
+        String getTokenHash();
+
+        Boolean getRevoked();
+
+        LocalDateTime getExpiresAt();
+    }
 }
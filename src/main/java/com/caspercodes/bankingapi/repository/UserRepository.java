@@ -2,12 +2,45 @@ package com.caspercodes.bankingapi.repository;
 
 import com.caspercodes.bankingapi.model.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
     boolean existsByEmail(String email);
+
+    @Modifying
+    @Query("UPDATE User u SET u.password = :password WHERE u.email = :email")
+    int updatePassword(@Param("email") String email, @Param("password") String password);
+
+    @Query("SELECT u.tokenVersion FROM User u WHERE u.email = :email")
+    Optional<Integer> findTokenVersionByEmail(@Param("email") String email);
+
+    // Takes an email already trimmed and lowercased, matches it however it was capitalized on registration
+    @Query("SELECT COUNT(u) > 0 FROM User u WHERE LOWER(u.email) = :email")
+    boolean existsByNormalizedEmail(@Param("email") String email);
+
+    // Takes emails already trimmed and lowercased, returns the matches in the same form
+    @Query("SELECT LOWER(u.email) FROM User u WHERE LOWER(u.email) IN :emails")
+    List<String> findExistingNormalizedEmails(@Param("emails") Collection<String> emails);
+
+    @Query("SELECT u.email AS email, u.tokenVersion AS tokenVersion FROM User u WHERE u.email IN :emails")
+    List<EmailTokenVersion> findTokenVersionsByEmailIn(@Param("emails") Collection<String> emails);
+
+    @Modifying
+    @Query("UPDATE User u SET u.tokenVersion = u.tokenVersion + 1 WHERE u.email = :email")
+    int incrementTokenVersion(@Param("email") String email);
+
+    interface EmailTokenVersion {
+        String getEmail();
+
+        Integer getTokenVersion();
+    }
 }
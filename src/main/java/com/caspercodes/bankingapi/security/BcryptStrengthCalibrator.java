@@ -0,0 +1,43 @@
+package com.caspercodes.bankingapi.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+/*
+  Picks the BCrypt work factor for this hardware: the highest strength whose hash
+  time stays within the target. Each strength step doubles the cost
+ */
+@Slf4j
+public final class BcryptStrengthCalibrator {
+
+    private static final String SAMPLE_PASSWORD = "Calibration#Sample1";
+
+    private BcryptStrengthCalibrator() {
+    }
+
+    public static int calibrate(long targetMillis, int minStrength, int maxStrength) {
+        // Warm up so JIT compilation is not counted in the first measurement
+        new BCryptPasswordEncoder(4).encode(SAMPLE_PASSWORD);
+
+        int chosen = minStrength;
+        for (int strength = minStrength; strength <= maxStrength; strength++) {
+            BCryptPasswordEncoder encoder = new BCryptPasswordEncoder(strength);
+            long start = System.nanoTime();
+            encoder.encode(SAMPLE_PASSWORD);
+            long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+            log.debug("BCrypt strength {} took {}ms", strength, elapsedMillis);
+            if (elapsedMillis > targetMillis && strength > minStrength) {
+                break;
+            }
+            chosen = strength;
+            if (elapsedMillis * 2 > targetMillis) {
+                // The next strength would double past the target
+                break;
+            }
+        }
+
+        log.info("Calibrated BCrypt strength: {} for target: {}ms", chosen, targetMillis);
+        return chosen;
+    }
+}
@@ -2,23 +2,31 @@ package com.caspercodes.bankingapi.security;
 
 import com.caspercodes.bankingapi.model.User;
 import lombok.Data;
-import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
-import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
 
 import java.util.Collection;
-import java.util.List;
 
 @Data
-@RequiredArgsConstructor
 public class CustomUserDetails implements UserDetails {
 
     private final User user;
 
+    // Temporary lock from repeated failed logins, see LoginAttemptService
+    private final boolean locked;
+
+    public CustomUserDetails(User user) {
+        this(user, false);
+    }
+
+    public CustomUserDetails(User user, boolean locked) {
+        this.user = user;
+        this.locked = locked;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
-        return List.of(new SimpleGrantedAuthority("ROLE_USER"));
+        return JwtPrincipal.grant(user.getRole() != null ? user.getRole() : User.Role.USER);
     }
 
     @Override
@@ -38,7 +46,7 @@ public class CustomUserDetails implements UserDetails {
 
     @Override
     public boolean isAccountNonLocked() {
-        return user.getIsActive();
+        return user.getIsActive() && !locked;
     }
 
     @Override
@@ -0,0 +1,282 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.exception.ErrorResponse;
+import com.caspercodes.bankingapi.service.IdempotencyService;
+import com.caspercodes.bankingapi.util.CachedBodyHttpServletRequest;
+import com.caspercodes.bankingapi.util.TokenHasher;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/*
+  Honors an Idempotency-Key header on mutating API calls. The first request with a key runs and its
+  response is stored, retries with the same key and body get that response replayed without running the
+  controller again, so no second OTP email, password hash or posting. Keys are scoped to the caller.
+  Server errors are not stored, the client may retry them with the same key. When the outcome of one is unknown
+  the key stays claimed instead, until it expires.
+  Responses that issue tokens are never stored, only that the key was used, and a retry of it is refused
+ */
+@Component
+@Slf4j
+public class IdempotencyFilter extends OncePerRequestFilter {
+
+    public static final String HEADER = "Idempotency-Key";
+
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    // Request attribute set when a server error may have left the request applied, its key is then neither
+    // stored nor released and expires on its own
+    public static final String KEEP_CLAIMED_ATTRIBUTE = IdempotencyFilter.class.getName() + ".keepClaimed";
+
+    private static final String API_PATH = "/api/";
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private static final Set<String> MUTATING_METHODS = Set.of("POST", "PUT", "PATCH", "DELETE");
+
+    // Outcomes that say nothing about the request itself, the same key may be retried after them
+    private static final Set<Integer> UNCACHED_STATUSES = Set.of(401, 403, 408, 409, 429);
+
+    private final IdempotencyService idempotencyService;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+
+    private final int maxBodyBytes;
+
+    // Path prefixes that move money, their keys are also recorded in Postgres
+    private final List<String> durablePaths;
+
+    // Path prefixes whose responses carry access or refresh tokens
+    private final List<String> tokenPaths;
+
+    public IdempotencyFilter(IdempotencyService idempotencyService,
+                             ObjectMapper objectMapper,
+                             @Value("${idempotency.enabled:true}") boolean enabled,
+                             @Value("${idempotency.max-body-bytes:65536}") int maxBodyBytes,
+                             @Value("${idempotency.durable-paths:/api/transfers,/api/admin/accounts}")
+                             String[] durablePaths,
+                             @Value("${idempotency.token-paths:/api/auth/verify-otp,/api/auth/refresh-token}")
+                             String[] tokenPaths) {
+        this.idempotencyService = idempotencyService;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.maxBodyBytes = maxBodyBytes;
+        this.durablePaths = paths(durablePaths);
+        this.tokenPaths = paths(tokenPaths);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || request.getHeader(HEADER) == null
+                || !MUTATING_METHODS.contains(request.getMethod())
+                || !request.getRequestURI().startsWith(API_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String key = request.getHeader(HEADER).trim();
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            reject(response, HttpStatus.BAD_REQUEST, HEADER + " must be 1 to " + MAX_KEY_LENGTH + " characters");
+            return;
+        }
+
+        long contentLength = request.getContentLengthLong();
+        if (contentLength > maxBodyBytes) {
+            // Bulk uploads are not replayable, they run as if no key was sent
+            log.debug("{} ignored for a {} byte body on {}", HEADER, contentLength, request.getRequestURI());
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        // Chunked bodies have no Content-Length, the read stops one byte past the limit
+        CachedBodyHttpServletRequest cached = new CachedBodyHttpServletRequest(request, maxBodyBytes);
+        if (!cached.isComplete()) {
+            log.debug("{} ignored for a body over {} bytes on {}", HEADER, maxBodyBytes, request.getRequestURI());
+            filterChain.doFilter(cached, response);
+            return;
+        }
+
+        boolean durable = matches(durablePaths, request.getRequestURI());
+        boolean issuesTokens = matches(tokenPaths, request.getRequestURI());
+        String keyHash = IdempotencyService.keyHash(scope(cached), key);
+        String fingerprint = fingerprint(cached);
+
+        IdempotencyService.Claim claim;
+        try {
+            claim = idempotencyService.claim(keyHash, fingerprint, durable);
+        } catch (DataAccessException e) {
+            log.error("Idempotency store unavailable for {}: {}", request.getRequestURI(), e.getMessage());
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, "Request could not be processed, please retry");
+            return;
+        }
+
+        switch (claim.status()) {
+            case ACQUIRED -> execute(cached, response, filterChain, keyHash, fingerprint, durable, issuesTokens);
+            case UNAVAILABLE -> filterChain.doFilter(cached, response);
+            case COMPLETED -> {
+                if (issuesTokens) {
+                    reject(response, HttpStatus.CONFLICT, "A request with this " + HEADER
+                            + " already completed, its tokens are not stored, retry with a new key");
+                } else {
+                    replay(response, claim.response());
+                }
+            }
+            case IN_PROGRESS -> {
+                response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+                reject(response, HttpStatus.CONFLICT, "A request with this " + HEADER + " is still being processed");
+            }
+            case MISMATCH -> reject(response, HttpStatus.UNPROCESSABLE_ENTITY,
+                    HEADER + " was already used for a different request");
+        }
+    }
+
+    private void execute(CachedBodyHttpServletRequest request, HttpServletResponse response, FilterChain filterChain,
+                         String keyHash, String fingerprint, boolean durable, boolean issuesTokens)
+            throws ServletException, IOException {
+        ContentCachingResponseWrapper wrapper = new ContentCachingResponseWrapper(response);
+        try {
+            try {
+                filterChain.doFilter(request, wrapper);
+            } catch (ServletException | IOException | RuntimeException e) {
+                releaseQuietly(keyHash, durable);
+                throw e;
+            }
+
+            int status = wrapper.getStatus();
+            if (status >= 500 && request.getAttribute(KEEP_CLAIMED_ATTRIBUTE) != null) {
+                log.warn("{} kept claimed after an unknown outcome on {}", HEADER, request.getRequestURI());
+                return;
+            }
+            if (status >= 500 || UNCACHED_STATUSES.contains(status)) {
+                releaseQuietly(keyHash, durable);
+                return;
+            }
+            // Tokens must not sit in Redis or Postgres, only the status marks the key as used
+            IdempotencyService.StoredResponse stored = issuesTokens
+                    ? new IdempotencyService.StoredResponse(status, null, null)
+                    : new IdempotencyService.StoredResponse(
+                            status,
+                            wrapper.getContentType(),
+                            new String(wrapper.getContentAsByteArray(), StandardCharsets.UTF_8));
+            try {
+                idempotencyService.complete(keyHash, fingerprint, stored, durable);
+            } catch (DataAccessException e) {
+                // The request did run, so the key stays claimed until it expires instead of allowing a second run
+                log.error("Could not store idempotent response for {}: {}", request.getRequestURI(), e.getMessage());
+            }
+        } finally {
+            wrapper.copyBodyToResponse();
+        }
+    }
+
+    private void releaseQuietly(String keyHash, boolean durable) {
+        try {
+            idempotencyService.release(keyHash, durable);
+        } catch (DataAccessException e) {
+            log.warn("Could not release idempotency key: {}", e.getMessage());
+        }
+    }
+
+    private void replay(HttpServletResponse response, IdempotencyService.StoredResponse stored) throws IOException {
+        response.setStatus(stored.status());
+        if (stored.contentType() != null) {
+            response.setContentType(stored.contentType());
+        }
+        response.setHeader(REPLAYED_HEADER, "true");
+        if (stored.body() != null) {
+            byte[] body = stored.body().getBytes(StandardCharsets.UTF_8);
+            response.setContentLength(body.length);
+            response.getOutputStream().write(body);
+        }
+    }
+
+    private static List<String> paths(String[] paths) {
+        return Arrays.stream(paths).map(String::trim).filter(path -> !path.isEmpty()).toList();
+    }
+
+    private static boolean matches(List<String> paths, String uri) {
+        for (String path : paths) {
+            if (uri.startsWith(path)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Authenticated callers get their own key space. Anonymous ones are scoped by the email they act on, or by
+    // their address when the request names none, so two clients picking the same key do not answer each other
+    private String scope(CachedBodyHttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && authentication.getPrincipal() instanceof JwtPrincipal principal) {
+            return "user:" + principal.getEmail();
+        }
+
+        String email = request.getParameter("email");
+        if (email == null) {
+            email = extractEmail(request.getBody());
+        }
+        if (email != null && !email.isBlank()) {
+            return "email:" + TokenHasher.sha256Hex(email.trim().toLowerCase(Locale.ROOT));
+        }
+        return "address:" + request.getRemoteAddr();
+    }
+
+    private String extractEmail(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText() : null;
+        } catch (IOException e) {
+            // Malformed bodies are rejected by the controller
+            return null;
+        }
+    }
+
+    private static String fingerprint(CachedBodyHttpServletRequest request) {
+        String query = request.getQueryString() != null ? "?" + request.getQueryString() : "";
+        return TokenHasher.sha256Hex(request.getMethod() + " " + request.getRequestURI() + query + "\n"
+                + new String(request.getBody(), StandardCharsets.UTF_8));
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String message) throws IOException {
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(status.value())
+                .error(status.getReasonPhrase())
+                .message(message)
+                .build();
+
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,75 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.util.JwtUtil;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtException;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/*
+  Authenticates Bearer requests from the verified access token claims alone.
+  The user is never loaded from the database here, see PrincipalCache and TokenVersionService
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class JwtAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final JwtUtil jwtUtil;
+
+    private final PrincipalCache principalCache;
+
+    private final TokenVersionService tokenVersionService;
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+
+        if (header != null && header.startsWith(BEARER_PREFIX)
+                && SecurityContextHolder.getContext().getAuthentication() == null) {
+            authenticate(header.substring(BEARER_PREFIX.length()));
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+    private void authenticate(String token) {
+        try {
+            Claims claims = jwtUtil.extractAllClaims(token);
+            // Refresh tokens are only good for /api/auth/refresh-token, never as a bearer credential
+            if (!JwtUtil.ACCESS_TOKEN.equals(JwtUtil.tokenUse(claims))) {
+                log.debug("Rejected {} token used as bearer for: {}", JwtUtil.tokenUse(claims), claims.getSubject());
+                return;
+            }
+            JwtPrincipal principal = principalCache.resolve(claims);
+            if (principal == null) {
+                log.debug("Rejected token without subject");
+                return;
+            }
+            if (!tokenVersionService.isCurrent(principal.getEmail(), principal.getTokenVersion())) {
+                log.debug("Rejected token with revoked version for: {}", principal.getEmail());
+                return;
+            }
+
+            UsernamePasswordAuthenticationToken authentication =
+                    UsernamePasswordAuthenticationToken.authenticated(principal, null, principal.getAuthorities());
+            SecurityContextHolder.getContext().setAuthentication(authentication);
+        } catch (JwtException | IllegalArgumentException e) {
+            log.debug("Rejected bearer token: {}", e.getMessage());
+        }
+    }
+}
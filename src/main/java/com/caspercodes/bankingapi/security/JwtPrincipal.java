@@ -0,0 +1,49 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.model.User;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.ToString;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+
+import java.security.Principal;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+  Authenticated principal built from verified access token claims only,
+  so protected requests never need to load the user from the database
+ */
+@Getter
+@ToString
+@RequiredArgsConstructor
+public class JwtPrincipal implements Principal {
+
+    private static final Map<User.Role, List<GrantedAuthority>> ROLE_AUTHORITIES = Arrays.stream(User.Role.values())
+            .collect(Collectors.toUnmodifiableMap(Function.identity(), JwtPrincipal::grant));
+
+    private final String email;
+
+    private final int tokenVersion;
+
+    private final Collection<? extends GrantedAuthority> authorities;
+
+    static List<GrantedAuthority> authorities(User.Role role) {
+        return ROLE_AUTHORITIES.get(role);
+    }
+
+    // Spring Security role authority for a role
+    public static List<GrantedAuthority> grant(User.Role role) {
+        return List.of(new SimpleGrantedAuthority("ROLE_" + role.name()));
+    }
+
+    @Override
+    public String getName() {
+        return email;
+    }
+}
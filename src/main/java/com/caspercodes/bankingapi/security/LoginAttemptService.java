@@ -0,0 +1,98 @@
+package com.caspercodes.bankingapi.security;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Locale;
+
+/*
+  Failed password and OTP attempts counted in expiring Redis keys, with a lock that doubles
+  on every failure past the threshold. Attack traffic never writes to the users table
+ */
+@Service
+@Slf4j
+public class LoginAttemptService {
+
+    private static final String FAILURE_PREFIX = "login-fail:";
+
+    private static final String LOCK_PREFIX = "login-lock:";
+
+    private final RedisTemplate<String, String> otpRedisTemplate;
+
+    private final RedisScript<Long> loginFailureScript;
+
+    private final String windowSeconds;
+
+    private final String threshold;
+
+    private final String baseLockSeconds;
+
+    private final String maxLockSeconds;
+
+    public LoginAttemptService(RedisTemplate<String, String> otpRedisTemplate,
+                               RedisScript<Long> loginFailureScript,
+                               @Value("${login-attempts.window-seconds:900}") long windowSeconds,
+                               @Value("${login-attempts.threshold:5}") int threshold,
+                               @Value("${login-attempts.base-lock-seconds:60}") long baseLockSeconds,
+                               @Value("${login-attempts.max-lock-seconds:3600}") long maxLockSeconds) {
+        this.otpRedisTemplate = otpRedisTemplate;
+        this.loginFailureScript = loginFailureScript;
+        this.windowSeconds = String.valueOf(windowSeconds);
+        this.threshold = String.valueOf(threshold);
+        this.baseLockSeconds = String.valueOf(baseLockSeconds);
+        this.maxLockSeconds = String.valueOf(maxLockSeconds);
+    }
+
+    // Seconds until the lock ends, 0 if not locked. Fails open when Redis is unavailable
+    public long lockedForSeconds(String email) {
+        try {
+            Long ttl = otpRedisTemplate.getExpire(LOCK_PREFIX + normalize(email));
+            return ttl != null && ttl > 0 ? ttl : 0;
+        } catch (DataAccessException e) {
+            log.warn("Redis unavailable for login lock check: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    public boolean isLocked(String email) {
+        return lockedForSeconds(email) > 0;
+    }
+
+    // Counts a failed attempt, returns the lock it caused in seconds or 0
+    public long recordFailure(String email) {
+        String normalized = normalize(email);
+        try {
+            Long lock = otpRedisTemplate.execute(
+                    loginFailureScript,
+                    List.of(FAILURE_PREFIX + normalized, LOCK_PREFIX + normalized),
+                    windowSeconds, threshold, baseLockSeconds, maxLockSeconds
+            );
+            if (lock != null && lock > 0) {
+                log.warn("Login locked for {} for {} seconds after repeated failures", normalized, lock);
+                return lock;
+            }
+        } catch (DataAccessException e) {
+            log.warn("Failed to record login failure for {}: {}", normalized, e.getMessage());
+        }
+        return 0;
+    }
+
+    // Clears the failure count after a completed login
+    public void reset(String email) {
+        String normalized = normalize(email);
+        try {
+            otpRedisTemplate.delete(List.of(FAILURE_PREFIX + normalized, LOCK_PREFIX + normalized));
+        } catch (DataAccessException e) {
+            log.warn("Failed to reset login failures for {}: {}", normalized, e.getMessage());
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
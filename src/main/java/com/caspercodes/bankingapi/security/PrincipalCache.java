@@ -0,0 +1,50 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.util.JwtUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.jsonwebtoken.Claims;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+@Component
+@Slf4j
+public class PrincipalCache {
+
+    private final Cache<Key, JwtPrincipal> principals;
+
+    public PrincipalCache(@Value("${security.principal-cache.max-size:10000}") long maxSize,
+                          @Value("${security.principal-cache.ttl-seconds:300}") long ttlSeconds) {
+        this.principals = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .build();
+
+        log.info("Principal cache initialized with max size: {}, ttl: {}s", maxSize, ttlSeconds);
+    }
+
+    // Returns the principal for verified claims, or null if the token has no subject
+    public JwtPrincipal resolve(Claims claims) {
+        String subject = claims.getSubject();
+        if (subject == null) {
+            return null;
+        }
+
+        int version = JwtUtil.tokenVersion(claims);
+        User.Role role = JwtUtil.role(claims);
+        return principals.get(new Key(subject, version, role),
+                key -> new JwtPrincipal(key.subject(), key.version(), JwtPrincipal.authorities(key.role())));
+    }
+
+    // Drop every cached version for a subject
+    public void evict(String subject) {
+        principals.asMap().keySet().removeIf(key -> key.subject().equals(subject));
+    }
+
+    private record Key(String subject, int version, User.Role role) {
+    }
+}
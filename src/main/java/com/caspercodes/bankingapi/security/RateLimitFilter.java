@@ -0,0 +1,174 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.exception.ErrorResponse;
+import com.caspercodes.bankingapi.util.CachedBodyHttpServletRequest;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/*
+  Redis backed sliding window limits for the auth endpoints, per client IP on every call
+  and per email on the calls that issue an OTP email. Over quota requests get 429 with Retry-After
+ */
+@Component
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String AUTH_PATH = "/api/auth/";
+
+    private static final String IP_PREFIX = "rate:ip:";
+
+    private static final String EMAIL_PREFIX = "rate:email:";
+
+    // Endpoints that send an OTP email
+    private static final Set<String> OTP_ISSUING_PATHS = Set.of(
+            "/api/auth/register",
+            "/api/auth/login",
+            "/api/auth/resend-otp"
+    );
+
+    // Auth request bodies are tiny, anything bigger is not parsed for an email
+    private static final int MAX_INSPECTED_BODY = 16 * 1024;
+
+    private final RedisTemplate<String, String> otpRedisTemplate;
+
+    private final RedisScript<Long> rateLimitScript;
+
+    private final ObjectMapper objectMapper;
+
+    private final boolean enabled;
+
+    private final String ipWindowMillis;
+
+    private final String ipMaxRequests;
+
+    private final String emailWindowMillis;
+
+    private final String emailMaxRequests;
+
+    public RateLimitFilter(RedisTemplate<String, String> otpRedisTemplate,
+                           RedisScript<Long> rateLimitScript,
+                           ObjectMapper objectMapper,
+                           @Value("${rate-limit.enabled:true}") boolean enabled,
+                           @Value("${rate-limit.ip.window-seconds:60}") long ipWindowSeconds,
+                           @Value("${rate-limit.ip.max-requests:30}") int ipMaxRequests,
+                           @Value("${rate-limit.email.window-seconds:600}") long emailWindowSeconds,
+                           @Value("${rate-limit.email.max-requests:5}") int emailMaxRequests) {
+        this.otpRedisTemplate = otpRedisTemplate;
+        this.rateLimitScript = rateLimitScript;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.ipWindowMillis = String.valueOf(ipWindowSeconds * 1000);
+        this.ipMaxRequests = String.valueOf(ipMaxRequests);
+        this.emailWindowMillis = String.valueOf(emailWindowSeconds * 1000);
+        this.emailMaxRequests = String.valueOf(emailMaxRequests);
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled
+                || !HttpMethod.POST.matches(request.getMethod())
+                || !request.getRequestURI().startsWith(AUTH_PATH);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        HttpServletRequest target = request;
+        List<String> keys = new ArrayList<>(2);
+        List<String> args = new ArrayList<>(5);
+        args.add(Long.toHexString(System.nanoTime()) + Long.toHexString(ThreadLocalRandom.current().nextLong()));
+
+        keys.add(IP_PREFIX + request.getRemoteAddr());
+        args.add(ipWindowMillis);
+        args.add(ipMaxRequests);
+
+        if (OTP_ISSUING_PATHS.contains(request.getRequestURI())) {
+            String email = request.getParameter("email");
+            long contentLength = request.getContentLengthLong();
+            if (email == null && contentLength >= 0 && contentLength <= MAX_INSPECTED_BODY) {
+                CachedBodyHttpServletRequest cached = new CachedBodyHttpServletRequest(request);
+                email = extractEmail(cached.getBody());
+                target = cached;
+            }
+            if (email != null && !email.isBlank()) {
+                keys.add(EMAIL_PREFIX + email.trim().toLowerCase(Locale.ROOT));
+                args.add(emailWindowMillis);
+                args.add(emailMaxRequests);
+            }
+        }
+
+        long retryAfterMillis = acquire(keys, args);
+        if (retryAfterMillis > 0) {
+            reject(request, response, retryAfterMillis);
+            return;
+        }
+
+        filterChain.doFilter(target, response);
+    }
+
+    private long acquire(List<String> keys, List<String> args) {
+        try {
+            Long result = otpRedisTemplate.execute(rateLimitScript, keys, args.toArray());
+            return result != null ? result : 0;
+        } catch (DataAccessException e) {
+            // Fail open, an unavailable Redis should not take authentication down with it
+            log.warn("Rate limit check skipped, Redis unavailable: {}", e.getMessage());
+            return 0;
+        }
+    }
+
+    private String extractEmail(byte[] body) {
+        if (body.length == 0) {
+            return null;
+        }
+        try {
+            JsonNode email = objectMapper.readTree(body).get("email");
+            return email != null && email.isTextual() ? email.asText() : null;
+        } catch (IOException e) {
+            // Malformed bodies are rejected by the controller, only the IP limit applies here
+            return null;
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response, long retryAfterMillis)
+            throws IOException {
+        long retryAfterSeconds = (retryAfterMillis + 999) / 1000;
+        log.warn("Rate limit exceeded for {} from {}, retry after {}s",
+                request.getRequestURI(), request.getRemoteAddr(), retryAfterSeconds);
+
+        ErrorResponse body = ErrorResponse.builder()
+                .timestamp(LocalDateTime.now())
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .error("Too Many Requests")
+                .message("Too many requests. Please try again in " + retryAfterSeconds + " seconds.")
+                .build();
+
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,188 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.repository.UserRepository;
+import com.caspercodes.bankingapi.service.UserCacheInvalidator;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+  Current token version per user. Tokens carry the version they were issued with and are rejected
+  once it is lower than this, so revoking every session is one increment instead of a revocation lookup per token.
+  Lookups go local memo -> Redis -> database, the short local memo bounds how long another node accepts old tokens
+ */
+@Service
+@Slf4j
+public class TokenVersionService {
+
+    private static final String KEY_PREFIX = "token-version:";
+
+    private final UserRepository userRepository;
+
+    private final RedisTemplate<String, String> otpRedisTemplate;
+
+    private final PrincipalCache principalCache;
+
+    private final UserCacheInvalidator userCacheInvalidator;
+
+    private final Cache<String, Integer> local;
+
+    // Outlives every refresh token, so a missing key means nothing issued under an older version is still valid
+    private final Duration redisTtl;
+
+    public TokenVersionService(UserRepository userRepository,
+                               RedisTemplate<String, String> otpRedisTemplate,
+                               PrincipalCache principalCache,
+                               UserCacheInvalidator userCacheInvalidator,
+                               @Value("${security.token-version.local-ttl-seconds:5}") long localTtlSeconds,
+                               @Value("${security.token-version.local-max-size:10000}") long localMaxSize,
+                               @Value("${jwt.refresh-expiration}") long refreshExpirationMillis) {
+        this.userRepository = userRepository;
+        this.otpRedisTemplate = otpRedisTemplate;
+        this.principalCache = principalCache;
+        this.userCacheInvalidator = userCacheInvalidator;
+        this.local = Caffeine.newBuilder()
+                .maximumSize(localMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(localTtlSeconds))
+                .build();
+        this.redisTtl = Duration.ofMillis(refreshExpirationMillis);
+    }
+
+    // True if a token issued with this version has not been revoked by a later bump
+    public boolean isCurrent(String email, int tokenVersion) {
+        return tokenVersion >= current(email);
+    }
+
+    public int current(String email) {
+        return local.get(email, this::load);
+    }
+
+    // Versions for many users, misses are fetched with one Redis MGET and one database query
+    public Map<String, Integer> current(Collection<String> emails) {
+        return local.getAll(emails, this::loadAll);
+    }
+
+    // Invalidates every access and refresh token of the user, visible to all nodes once the transaction commits
+    @Transactional
+    public void bump(String email) {
+        userRepository.incrementTokenVersion(email);
+        // Cached users carry the version new tokens are issued with
+        userCacheInvalidator.evictNowAndAfterCommit(email);
+        int version = userRepository.findTokenVersionByEmail(email).orElse(0);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish(email, version);
+                }
+            });
+        } else {
+            publish(email, version);
+        }
+        log.info("Token version for {} bumped to {}", email, version);
+    }
+
+    private void publish(String email, int version) {
+        try {
+            otpRedisTemplate.opsForValue().set(key(email), Integer.toString(version), redisTtl);
+        } catch (DataAccessException e) {
+            log.warn("Failed to publish token version for {}: {}", email, e.getMessage());
+            evictQuietly(email);
+        }
+        local.invalidate(email);
+        principalCache.evict(email);
+    }
+
+    private int load(String email) {
+        try {
+            String cached = otpRedisTemplate.opsForValue().get(key(email));
+            if (cached != null) {
+                return Integer.parseInt(cached);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Redis unavailable for token version lookup, using the database: {}", e.getMessage());
+            return userRepository.findTokenVersionByEmail(email).orElse(0);
+        }
+
+        int version = userRepository.findTokenVersionByEmail(email).orElse(0);
+        try {
+            // Only set if absent, a concurrent bump must not be overwritten with the value read before it
+            otpRedisTemplate.opsForValue().setIfAbsent(key(email), Integer.toString(version), redisTtl);
+        } catch (DataAccessException e) {
+            log.debug("Failed to cache token version for {}: {}", email, e.getMessage());
+        }
+        return version;
+    }
+
+    // A stale Redis entry would hide the bump from other nodes, without it they read the database
+    private void evictQuietly(String email) {
+        try {
+            otpRedisTemplate.delete(key(email));
+        } catch (DataAccessException e) {
+            log.error("Stale token version for {} may remain in Redis: {}", email, e.getMessage());
+        }
+    }
+
+    private Map<String, Integer> loadAll(Set<? extends String> emails) {
+        List<String> requested = List.copyOf(emails);
+        Map<String, Integer> versions = new HashMap<>();
+        List<String> misses = new ArrayList<>();
+
+        boolean redisAvailable = true;
+        try {
+            List<String> cached = otpRedisTemplate.opsForValue().multiGet(requested.stream().map(TokenVersionService::key).toList());
+            for (int i = 0; i < requested.size(); i++) {
+                String value = cached != null ? cached.get(i) : null;
+                if (value != null) {
+                    versions.put(requested.get(i), Integer.parseInt(value));
+                } else {
+                    misses.add(requested.get(i));
+                }
+            }
+        } catch (DataAccessException e) {
+            log.warn("Redis unavailable for token version lookup, using the database: {}", e.getMessage());
+            redisAvailable = false;
+            misses.addAll(requested);
+        }
+
+        if (misses.isEmpty()) {
+            return versions;
+        }
+
+        Map<String, Integer> stored = new HashMap<>();
+        userRepository.findTokenVersionsByEmailIn(misses)
+                .forEach(row -> stored.put(row.getEmail(), row.getTokenVersion()));
+        for (String email : misses) {
+            int version = stored.getOrDefault(email, 0);
+            versions.put(email, version);
+            if (redisAvailable) {
+                try {
+                    otpRedisTemplate.opsForValue().setIfAbsent(key(email), Integer.toString(version), redisTtl);
+                } catch (DataAccessException e) {
+                    log.debug("Failed to cache token version for {}: {}", email, e.getMessage());
+                }
+            }
+        }
+        return versions;
+    }
+
+    private static String key(String email) {
+        return KEY_PREFIX + email;
+    }
+}
@@ -0,0 +1,161 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.AccountBalanceDTO;
+import com.caspercodes.bankingapi.dto.AccountResponseDTO;
+import com.caspercodes.bankingapi.dto.JournalEntryDTO;
+import com.caspercodes.bankingapi.exception.AccountNotFoundException;
+import com.caspercodes.bankingapi.exception.UnsupportedCurrencyException;
+import com.caspercodes.bankingapi.model.Account;
+import com.caspercodes.bankingapi.model.BalanceCheckpoint;
+import com.caspercodes.bankingapi.repository.AccountRepository;
+import com.caspercodes.bankingapi.repository.BalanceCheckpointRepository;
+import com.caspercodes.bankingapi.repository.JournalEntryRepository;
+import com.caspercodes.bankingapi.repository.UserRepository;
+import com.caspercodes.bankingapi.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.security.SecureRandom;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AccountService {
+
+    private static final SecureRandom random = new SecureRandom();
+
+    private static final int ACCOUNT_NUMBER_ATTEMPTS = 5;
+
+    private static final int MAX_ENTRIES_PAGE = 200;
+
+    private final AccountRepository accountRepository;
+    private final JournalEntryRepository journalEntryRepository;
+    private final UserRepository userRepository;
+    private final UserCache userCache;
+    private final BalanceCheckpointRepository balanceCheckpointRepository;
+
+    @Value("${ledger.checkpoint-interval:100}")
+    private int checkpointInterval;
+
+    @Transactional
+    public AccountResponseDTO openAccount(String ownerEmail, String currency) {
+        Long ownerId = ownerId(ownerEmail);
+        if (!Money.isSupported(currency)) {
+            throw new UnsupportedCurrencyException("Unsupported currency: " + currency);
+        }
+
+        Account account = accountRepository.save(Account.builder()
+                .accountNumber(newAccountNumber())
+                .owner(userRepository.getReferenceById(ownerId))
+                .currency(currency)
+                .build());
+
+        log.info("Opened {} account {} for: {}", currency, account.getAccountNumber(), ownerEmail);
+        return AccountResponseDTO.from(account);
+    }
+
+    // The bank's side of deposits in one currency, see TransferService.deposit
+    @Transactional
+    public void openClearingAccount(String currency) {
+        Account account = accountRepository.saveAndFlush(Account.builder()
+                .accountNumber(clearingAccountNumber(currency))
+                .currency(currency)
+                .type(Account.Type.CLEARING)
+                .build());
+
+        log.info("Opened {} clearing account {}", currency, account.getAccountNumber());
+    }
+
+    // Outside the 10 digit customer range, and fixed so that the unique constraint stops a second one being opened
+    public static String clearingAccountNumber(String currency) {
+        return "CLR" + currency;
+    }
+
+    @Transactional(readOnly = true)
+    public List<AccountResponseDTO> listAccounts(String ownerEmail) {
+        return accountRepository.findAllByOwnerIdOrderById(ownerId(ownerEmail)).stream()
+                .map(AccountResponseDTO::from)
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public AccountResponseDTO getAccount(String ownerEmail, String accountNumber) {
+        return AccountResponseDTO.from(ownedAccount(ownerEmail, accountNumber));
+    }
+
+    @Transactional(readOnly = true)
+    public List<JournalEntryDTO> getEntries(String ownerEmail, String accountNumber, int limit) {
+        Account account = ownedAccount(ownerEmail, accountNumber);
+        int pageSize = Math.clamp(limit, 1, MAX_ENTRIES_PAGE);
+        return journalEntryRepository.findByAccountIdOrderBySequenceNoDesc(account.getId(), PageRequest.of(0, pageSize)).stream()
+                .map(JournalEntryDTO::from)
+                .toList();
+    }
+
+    // Materialized balance, one row read
+    @Transactional(readOnly = true)
+    public AccountBalanceDTO getBalance(String ownerEmail, String accountNumber) {
+        Account account = ownedAccount(ownerEmail, accountNumber);
+        return AccountBalanceDTO.builder()
+                .accountNumber(account.getAccountNumber())
+                .currency(account.getCurrency())
+                .balance(Money.toDecimal(account.getBalance(), account.getCurrency()))
+                .sequenceNo(account.getPostingSequence())
+                .build();
+    }
+
+    // Nearest checkpoint at or before the time plus the entries after it, at most one checkpoint interval
+    @Transactional(readOnly = true)
+    public AccountBalanceDTO getBalanceAt(String ownerEmail, String accountNumber, LocalDateTime at) {
+        Account account = ownedAccount(ownerEmail, accountNumber);
+
+        Optional<BalanceCheckpoint> checkpoint = balanceCheckpointRepository
+                .findFirstByAccountIdAndCreatedAtLessThanEqualOrderByCreatedAtDescSequenceNoDesc(account.getId(), at);
+        long fromSequence = checkpoint.map(BalanceCheckpoint::getSequenceNo).orElse(0L);
+        long fromBalance = checkpoint.map(BalanceCheckpoint::getBalance).orElse(0L);
+
+        JournalEntryRepository.TailChange tail = journalEntryRepository.sumTail(
+                account.getId(), fromSequence, fromSequence + checkpointInterval, at);
+        return AccountBalanceDTO.builder()
+                .accountNumber(account.getAccountNumber())
+                .currency(account.getCurrency())
+                .balance(Money.toDecimal(Math.addExact(fromBalance, tail.getChange()), account.getCurrency()))
+                .sequenceNo(tail.getLastSequence() != null ? tail.getLastSequence() : fromSequence)
+                .asOf(at)
+                .build();
+    }
+
+    // Accounts of other customers are reported as missing, not forbidden, so numbers cannot be probed
+    Account ownedAccount(String ownerEmail, String accountNumber) {
+        Account account = accountRepository.findByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountNotFoundException("Account not found: " + accountNumber));
+        if (account.getOwner() == null || !account.getOwner().getId().equals(ownerId(ownerEmail))) {
+            throw new AccountNotFoundException("Account not found: " + accountNumber);
+        }
+        return account;
+    }
+
+    Long ownerId(String email) {
+        return userCache.find(email)
+                .map(UserCache.Snapshot::id)
+                .orElseThrow(() -> new AccountNotFoundException("No customer for: " + email));
+    }
+
+    // Random 10 digit number, the unique constraint backs the existence check
+    private String newAccountNumber() {
+        for (int attempt = 0; attempt < ACCOUNT_NUMBER_ATTEMPTS; attempt++) {
+            String number = String.format("%010d", random.nextLong(10_000_000_000L));
+            if (!accountRepository.existsByAccountNumber(number)) {
+                return number;
+            }
+        }
+        throw new IllegalStateException("Could not allocate a free account number");
+    }
+}
@@ -5,26 +5,35 @@ import com.caspercodes.bankingapi.dto.LoginRequestDTO;
 import com.caspercodes.bankingapi.dto.OtpResponseDTO;
 import com.caspercodes.bankingapi.dto.RegisterRequestDTO;
 import com.caspercodes.bankingapi.exception.EmailAlreadyExistsException;
+import com.caspercodes.bankingapi.exception.InvalidOtpException;
 import com.caspercodes.bankingapi.exception.InvalidTokenException;
 import com.caspercodes.bankingapi.exception.TokenExpiredException;
+import com.caspercodes.bankingapi.exception.TooManyAttemptsException;
 import com.caspercodes.bankingapi.model.OtpData;
 import com.caspercodes.bankingapi.model.RefreshToken;
 import com.caspercodes.bankingapi.model.User;
 import com.caspercodes.bankingapi.repository.RefreshTokenRepository;
 import com.caspercodes.bankingapi.repository.UserRepository;
 import com.caspercodes.bankingapi.security.CustomUserDetails;
+import com.caspercodes.bankingapi.security.LoginAttemptService;
+import com.caspercodes.bankingapi.security.TokenVersionService;
 import com.caspercodes.bankingapi.util.JwtUtil;
+import com.caspercodes.bankingapi.util.SqlStates;
+import com.caspercodes.bankingapi.util.TokenHasher;
+import io.jsonwebtoken.JwtException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.BadCredentialsException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
-import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.Optional;
 
 @Service
 @RequiredArgsConstructor
@@ -36,14 +45,21 @@ public class AuthService {
     private final JwtUtil jwtUtil;
     private final AuthenticationManager authenticationManager;
     private final OtpService otpService;
+    private final TokenVersionService tokenVersionService;
+    private final LoginAttemptService loginAttemptService;
+    private final LoginActivityRecorder loginActivityRecorder;
+    private final UserCache userCache;
+    private final RegisteredEmailFilter registeredEmailFilter;
 
     @Transactional
     public OtpResponseDTO register(RegisterRequestDTO request) {
         log.info("Attempting to register user with email: {}", request.getEmail());
 
-        if (userRepository.existsByEmail(request.getEmail())) {
-            log.warn("Registration failed: Email {} already exists", request.getEmail());
-            throw new EmailAlreadyExistsException("Email already exists " + request.getEmail());
+        // Most new emails are ruled out by the filter without a query, the unique constraint decides the rest.
+        // Emails keep the case they were typed in but are unique ignoring it, the same as the customer import
+        if (registeredEmailFilter.mightExist(request.getEmail())
+                && userRepository.existsByNormalizedEmail(UserCache.normalize(request.getEmail()))) {
+            throw emailAlreadyExists(request.getEmail());
         }
 
         User user = User.builder()
@@ -55,7 +71,18 @@ public class AuthService {
                 .isVerified(false)
                 .build();
 
-        User savedUser = userRepository.save(user);
+        User savedUser;
+        try {
+            savedUser = userRepository.saveAndFlush(user);
+        } catch (DataIntegrityViolationException e) {
+            // The only unique column users can supply is email, so a concurrent registration won the race
+            if (!SqlStates.isUniqueViolation(e)) {
+                throw e;
+            }
+            registeredEmailFilter.add(request.getEmail());
+            throw emailAlreadyExists(request.getEmail());
+        }
+        registeredEmailFilter.add(savedUser.getEmail());
         log.info("User with ID: {} registered successfully", savedUser.getId());
 
         otpService.generateAndSendOtp(savedUser.getEmail(), OtpData.OtpType.REGISTRATION);
@@ -71,12 +98,20 @@ public class AuthService {
     public OtpResponseDTO login(LoginRequestDTO request) {
         log.info("Login attempt for email: {}", request.getEmail());
 
-        Authentication authentication = authenticationManager.authenticate(
-                new UsernamePasswordAuthenticationToken(
-                        request.getEmail(),
-                        request.getPassword()
-                )
-        );
+        // Checked before the user lookup and password hash, the same for unknown and existing emails
+        rejectIfLocked(request.getEmail());
+
+        try {
+            authenticationManager.authenticate(
+                    new UsernamePasswordAuthenticationToken(
+                            request.getEmail(),
+                            request.getPassword()
+                    )
+            );
+        } catch (BadCredentialsException e) {
+            loginAttemptService.recordFailure(request.getEmail());
+            throw e;
+        }
 
         log.info("User with email: {} authenticated successfully", request.getEmail());
 
@@ -93,21 +128,33 @@ public class AuthService {
     public AuthResponseDTO verifyOtpAndLogin(String email, String otp) {
         log.info("OTP verification attempt for email: {}", email);
 
-        otpService.verifyOtp(email, otp);
+        rejectIfLocked(email);
+        try {
+            otpService.verifyOtp(email, otp);
+        } catch (InvalidOtpException | TooManyAttemptsException e) {
+            loginAttemptService.recordFailure(email);
+            throw e;
+        }
+        loginAttemptService.reset(email);
 
-        User user = userRepository.findByEmail(email)
+        User user = userCache.find(email)
+                .map(UserCache.Snapshot::toUser)
                 .orElseThrow(() -> new RuntimeException("User not found"));
 
+        LocalDateTime now = LocalDateTime.now();
         if (!user.getIsVerified()) {
+            // A real state change, written now together with the login time on the managed entity
+            user = userRepository.findById(user.getId())
+                    .orElseThrow(() -> new RuntimeException("User not found"));
             user.setIsVerified(true);
-            user.setEmailVerifiedAt(LocalDateTime.now());
+            user.setEmailVerifiedAt(now);
+            user.setLastLoginAt(now);
+            userRepository.save(user);
             log.info("User verified: {}", email);
+        } else {
+            loginActivityRecorder.recordLogin(user.getId(), now);
         }
 
-        user.setLastLoginAt(LocalDateTime.now());
-        user.setFailedLoginAttempts(0);
-        userRepository.save(user);
-
         UserDetails userDetails = new CustomUserDetails(user);
         String accessToken = jwtUtil.generateToken(userDetails);
         String refreshToken = jwtUtil.generateRefreshToken(userDetails);
@@ -118,32 +165,30 @@ public class AuthService {
         return buildAuthResponse(user, accessToken, refreshToken);
     }
 
-    @Transactional
+    // Not rolled back on InvalidTokenException, a detected reuse must keep its family revocation
+    @Transactional(noRollbackFor = InvalidTokenException.class)
     public AuthResponseDTO refreshAccessToken(String refreshTokenString) {
         log.debug("Attempting to refresh access token");
 
-        RefreshToken refreshToken = refreshTokenRepository.findByToken(refreshTokenString)
-                .orElseThrow(() -> new InvalidTokenException("Invalid refresh token"));
+        String tokenHash = hashRefreshToken(refreshTokenString);
 
-        if (refreshToken.getRevoked()) {
-            log.warn("Attempting use of refresh token that has been revoked");
-            throw new InvalidTokenException("Refresh token has been revoked");
+        // Conditional revoke, of two concurrent refreshes with the same token only one gets the user id back
+        Optional<Long> userId = refreshTokenRepository.revokeIfActive(tokenHash, LocalDateTime.now());
+        if (userId.isEmpty()) {
+            throw rejectRefresh(tokenHash);
         }
 
-        if (refreshToken.getExpiresAt().isBefore(LocalDateTime.now())) {
-            log.warn("Attempting use of refresh token that has expired");
-            throw new TokenExpiredException("Refresh token has expired");
+        User user = userRepository.findById(userId.get())
+                .orElseThrow(() -> new InvalidTokenException("Invalid refresh token"));
+        if (refreshTokenVersion(refreshTokenString) < user.getTokenVersion()) {
+            log.warn("Refresh token issued before a revoke-all used for user: {}", user.getEmail());
+            throw new InvalidTokenException("Refresh token has been revoked");
         }
-
-        User user = refreshToken.getUser();
         UserDetails userDetails = new CustomUserDetails(user);
 
         String newAccessToken = jwtUtil.generateToken(userDetails);
         String newRefreshToken = jwtUtil.generateRefreshToken(userDetails);
 
-        refreshToken.setRevoked(true);
-        refreshTokenRepository.save(refreshToken);
-
         saveRefreshToken(user, newRefreshToken);
 
         log.info("Access token refreshed successfully for user: {}", user.getEmail());
@@ -154,18 +199,62 @@ public class AuthService {
     public void logout(String refreshTokenString) {
         log.debug("Attempting to logout");
 
-        refreshTokenRepository.findByToken(refreshTokenString)
-                .ifPresent(token -> {
-                    token.setRevoked(true);
-                    refreshTokenRepository.save(token);
-                    log.info("User logged out successfully. Refresh token revoked.");
-                });
+        if (refreshTokenRepository.revokeByTokenHash(hashRefreshToken(refreshTokenString), LocalDateTime.now()) > 0) {
+            log.info("User logged out successfully. Refresh token revoked.");
+        }
+    }
+
+    private EmailAlreadyExistsException emailAlreadyExists(String email) {
+        log.warn("Registration failed: Email {} already exists", email);
+        return new EmailAlreadyExistsException("Email already exists " + email);
+    }
+
+    private void rejectIfLocked(String email) {
+        long lockedFor = loginAttemptService.lockedForSeconds(email);
+        if (lockedFor > 0) {
+            log.warn("Rejected attempt for locked account: {}", email);
+            throw new TooManyAttemptsException(String.format(
+                    "Too many failed attempts. Try again in %d minute(s).", (lockedFor + 59) / 60));
+        }
+    }
+
+    // Revokes every session of the user on every device by bumping the token version
+    public void logoutAll(String email) {
+        tokenVersionService.bump(email);
+        log.info("All sessions revoked for user: {}", email);
+    }
+
+    private int refreshTokenVersion(String refreshTokenString) {
+        try {
+            return JwtUtil.tokenVersion(jwtUtil.extractAllClaims(refreshTokenString));
+        } catch (JwtException | IllegalArgumentException e) {
+            throw new InvalidTokenException("Invalid refresh token");
+        }
+    }
+
+    // Works out why a refresh token could not be rotated. Presenting a revoked token means it was
+    // stolen or replayed, so every token of that user is revoked
+    private RuntimeException rejectRefresh(String tokenHash) {
+        Optional<RefreshTokenRepository.RefreshTokenState> state = refreshTokenRepository.findStateByTokenHash(tokenHash);
+        if (state.isEmpty()) {
+            return new InvalidTokenException("Invalid refresh token");
+        }
+
+        if (state.get().getRevoked()) {
+            int revoked = refreshTokenRepository.revokeAllByUserId(state.get().getUserId(), LocalDateTime.now());
+            log.warn("Reuse of revoked refresh token detected for user ID: {}, revoked {} active token(s)",
+                    state.get().getUserId(), revoked);
+            return new InvalidTokenException("Refresh token has been revoked");
+        }
+
+        log.warn("Attempting use of refresh token that has expired");
+        return new TokenExpiredException("Refresh token has expired");
     }
 
     private void saveRefreshToken(User user, String tokenString) {
         RefreshToken refreshToken = RefreshToken.builder()
-                .token(tokenString)
-                .user(user)
+                .tokenHash(TokenHasher.sha256Hex(tokenString))
+                .user(userRepository.getReferenceById(user.getId()))
                 .expiresAt(LocalDateTime.now().plusDays(7))
                 .build();
 
@@ -173,6 +262,13 @@ public class AuthService {
         log.debug("Refresh token saved successfully for user: {}", user.getEmail());
     }
 
+    private String hashRefreshToken(String tokenString) {
+        if (tokenString == null || tokenString.isBlank()) {
+            throw new InvalidTokenException("Invalid refresh token");
+        }
+        return TokenHasher.sha256Hex(tokenString);
+    }
+
     private AuthResponseDTO buildAuthResponse(User user, String accessToken, String refreshToken) {
         AuthResponseDTO.UserInfo userInfo = AuthResponseDTO.UserInfo.builder()
                 .id(user.getId())
@@ -0,0 +1,194 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.util.LongLongHashMap;
+
+import java.util.Arrays;
+import java.util.List;
+
+/*
+  In-memory state of the accounts locked for one posting group, the validation and posting loop of LedgerPoster.
+  Accounts live in parallel primitive arrays, found through a long keyed map from account id to slot, and balances
+  are long minor units, so applying a group allocates nothing per posting. Each posting is checked against the
+  balances left by the postings before it, the outcome and both resulting balances and sequence numbers are
+  recorded by posting index for LedgerPoster to turn into entities afterwards
+ */
+public final class BalanceProjection {
+
+    public static final int POSTED = 0;
+
+    public static final int ACCOUNT_NOT_FOUND = 1;
+
+    public static final int NOT_OWNER = 2;
+
+    public static final int INACTIVE = 3;
+
+    public static final int CURRENCY_MISMATCH = 4;
+
+    public static final int INSUFFICIENT_FUNDS = 5;
+
+    public static final int OVERFLOW = 6;
+
+    private static final long MISSING = -1;
+
+    private final LongLongHashMap slots;
+
+    private long[] owners;
+
+    private String[] currencies;
+
+    private boolean[] active;
+
+    private boolean[] overdraft;
+
+    private long[] balances;
+
+    private long[] sequences;
+
+    private int accounts;
+
+    private int[] results = new int[0];
+
+    private long[] fromBalanceAfter = new long[0];
+
+    private long[] fromSequence = new long[0];
+
+    private long[] toBalanceAfter = new long[0];
+
+    private long[] toSequence = new long[0];
+
+    public BalanceProjection(int expectedAccounts) {
+        int capacity = Math.max(2, expectedAccounts);
+        this.slots = new LongLongHashMap(capacity);
+        this.owners = new long[capacity];
+        this.currencies = new String[capacity];
+        this.active = new boolean[capacity];
+        this.overdraft = new boolean[capacity];
+        this.balances = new long[capacity];
+        this.sequences = new long[capacity];
+    }
+
+    // Accounts that may overdraw skip the funds check, only a balance leaving the long range rejects their postings
+    public void addAccount(long accountId, long ownerId, String currency, boolean isActive, boolean mayOverdraw,
+                           long balance, long sequence) {
+        if (accounts == owners.length) {
+            grow();
+        }
+        slots.put(accountId, accounts);
+        owners[accounts] = ownerId;
+        currencies[accounts] = currency;
+        active[accounts] = isActive;
+        overdraft[accounts] = mayOverdraw;
+        balances[accounts] = balance;
+        sequences[accounts] = sequence;
+        accounts++;
+    }
+
+    // Forgets all accounts but keeps the arrays, so a reused projection allocates nothing
+    public void clear() {
+        slots.clear();
+        Arrays.fill(currencies, 0, accounts, null);
+        accounts = 0;
+    }
+
+    // Applies the postings in order, valid ones change the projected balances, see result(i) for each outcome
+    public void apply(List<LedgerPoster.Posting> postings) {
+        int count = postings.size();
+        ensureResultCapacity(count);
+        for (int i = 0; i < count; i++) {
+            results[i] = apply(i, postings.get(i));
+        }
+    }
+
+    private int apply(int index, LedgerPoster.Posting posting) {
+        int from = (int) slots.get(posting.fromId(), MISSING);
+        int to = (int) slots.get(posting.toId(), MISSING);
+        if (from < 0 || to < 0) {
+            return ACCOUNT_NOT_FOUND;
+        }
+        if (owners[from] != posting.ownerId()) {
+            return NOT_OWNER;
+        }
+        if (!active[from] || !active[to]) {
+            return INACTIVE;
+        }
+        if (!currencies[from].equals(currencies[to]) || !currencies[from].equals(posting.currency())) {
+            return CURRENCY_MISMATCH;
+        }
+
+        long amount = posting.amount();
+        if (!overdraft[from] && balances[from] < amount) {
+            return INSUFFICIENT_FUNDS;
+        }
+        long debited = balances[from] - amount;
+        long credited = balances[to] + amount;
+        // Overflow iff the sign comes out wrong, same tests as Math.subtractExact and Math.addExact
+        if (((balances[from] ^ amount) & (balances[from] ^ debited)) < 0
+                || ((balances[to] ^ credited) & (amount ^ credited)) < 0) {
+            return OVERFLOW;
+        }
+
+        balances[from] = debited;
+        balances[to] = credited;
+        fromBalanceAfter[index] = debited;
+        fromSequence[index] = ++sequences[from];
+        toBalanceAfter[index] = credited;
+        toSequence[index] = ++sequences[to];
+        return POSTED;
+    }
+
+    public int result(int index) {
+        return results[index];
+    }
+
+    public long fromBalanceAfter(int index) {
+        return fromBalanceAfter[index];
+    }
+
+    public long fromSequence(int index) {
+        return fromSequence[index];
+    }
+
+    public long toBalanceAfter(int index) {
+        return toBalanceAfter[index];
+    }
+
+    public long toSequence(int index) {
+        return toSequence[index];
+    }
+
+    public long balance(long accountId) {
+        return balances[slot(accountId)];
+    }
+
+    public long sequence(long accountId) {
+        return sequences[slot(accountId)];
+    }
+
+    private int slot(long accountId) {
+        int slot = (int) slots.get(accountId, MISSING);
+        if (slot < 0) {
+            throw new IllegalArgumentException("Account not in projection: " + accountId);
+        }
+        return slot;
+    }
+
+    private void ensureResultCapacity(int count) {
+        if (results.length < count) {
+            results = new int[count];
+            fromBalanceAfter = new long[count];
+            fromSequence = new long[count];
+            toBalanceAfter = new long[count];
+            toSequence = new long[count];
+        }
+    }
+
+    private void grow() {
+        int capacity = owners.length << 1;
+        owners = Arrays.copyOf(owners, capacity);
+        currencies = Arrays.copyOf(currencies, capacity);
+        active = Arrays.copyOf(active, capacity);
+        overdraft = Arrays.copyOf(overdraft, capacity);
+        balances = Arrays.copyOf(balances, capacity);
+        sequences = Arrays.copyOf(sequences, capacity);
+    }
+}
@@ -2,9 +2,11 @@ package com.caspercodes.bankingapi.service;
 
 import com.caspercodes.bankingapi.repository.UserRepository;
 import com.caspercodes.bankingapi.security.CustomUserDetails;
+import com.caspercodes.bankingapi.security.LoginAttemptService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -13,19 +15,37 @@ import org.springframework.transaction.annotation.Transactional;
 @Service
 @RequiredArgsConstructor
 @Slf4j
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
     private final UserRepository userRepository;
+    private final LoginAttemptService loginAttemptService;
+    private final UserCache userCache;
+    private final UserCacheInvalidator userCacheInvalidator;
 
     @Override
     @Transactional(readOnly = true)
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
         log.debug("Loading user by username: {}", email);
 
-        return userRepository.findByEmail(email)
-                .map(CustomUserDetails::new)
+        return userCache.findWithPassword(email)
+                .map(user -> new CustomUserDetails(user.toUser(), loginAttemptService.isLocked(email)))
                 .orElseThrow(() -> {
                     log.warn("User not found with email: {}", email);
                     return new UsernameNotFoundException("Invalid Credentials");
                 });
     }
+
+    // Called after a successful login when the stored hash uses an outdated cost or format
+    @Override
+    @Transactional
+    public UserDetails updatePassword(UserDetails userDetails, String newPassword) {
+        userRepository.updatePassword(userDetails.getUsername(), newPassword);
+        userCacheInvalidator.evictNowAndAfterCommit(userDetails.getUsername());
+        log.info("Upgraded password hash for: {}", userDetails.getUsername());
+
+        if (userDetails instanceof CustomUserDetails customUserDetails) {
+            customUserDetails.getUser().setPassword(newPassword);
+            return customUserDetails;
+        }
+        return userDetails;
+    }
 }
@@ -0,0 +1,358 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.CustomerImportResultDTO;
+import com.caspercodes.bankingapi.dto.RegisterRequestDTO;
+import com.caspercodes.bankingapi.exception.InvalidImportException;
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.repository.UserRepository;
+import com.caspercodes.bankingapi.security.BoundedPasswordEncoder;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/*
+  Bulk import of customers migrated from partner banks. The upload is read line by line in chunks,
+  so memory stays flat however large the file is. Each chunk is validated, its passwords hashed in parallel
+  on the shared hashing pool and inserted with one batched saveAll. Failing rows are reported, not fatal
+ */
+@Service
+@Slf4j
+public class CustomerOnboardingService {
+
+    public enum Format {
+        CSV,
+        NDJSON
+    }
+
+    private static final List<String> CSV_COLUMNS = List.of("firstName", "lastName", "email", "password", "phoneNumber");
+
+    private final UserRepository userRepository;
+
+    private final BoundedPasswordEncoder passwordEncoder;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final Validator validator;
+
+    private final ObjectMapper objectMapper;
+
+    private final RegisteredEmailFilter registeredEmailFilter;
+
+    private final int chunkSize;
+
+    // Hashes in flight for one import, below the hashing pool size so logins always get a thread
+    private final int hashConcurrency;
+
+    private final int maxReportedErrors;
+
+    public CustomerOnboardingService(UserRepository userRepository,
+                                     BoundedPasswordEncoder passwordEncoder,
+                                     TransactionTemplate transactionTemplate,
+                                     Validator validator,
+                                     ObjectMapper objectMapper,
+                                     RegisteredEmailFilter registeredEmailFilter,
+                                     @Value("${onboarding.chunk-size:500}") int chunkSize,
+                                     @Value("${onboarding.hash-concurrency:0}") int hashConcurrency,
+                                     @Value("${onboarding.max-reported-errors:1000}") int maxReportedErrors) {
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.transactionTemplate = transactionTemplate;
+        this.validator = validator;
+        this.objectMapper = objectMapper;
+        this.registeredEmailFilter = registeredEmailFilter;
+        this.chunkSize = chunkSize;
+        this.hashConcurrency = hashConcurrency(hashConcurrency, passwordEncoder.getPoolSize());
+        this.maxReportedErrors = maxReportedErrors;
+    }
+
+    // 0 takes half of the hashing pool, an explicit value must leave at least one thread to logins
+    static int hashConcurrency(int configured, int poolSize) {
+        if (configured <= 0) {
+            return Math.max(1, poolSize / 2);
+        }
+        if (configured >= poolSize) {
+            throw new IllegalStateException("onboarding.hash-concurrency (" + configured
+                    + ") must be below password.hashing.pool-size (" + poolSize + ")");
+        }
+        return configured;
+    }
+
+    public CustomerImportResultDTO importCustomers(InputStream input, Format format) {
+        ImportState state = new ImportState();
+        long started = System.currentTimeMillis();
+
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8))) {
+            Map<String, Integer> csvColumns = format == Format.CSV ? readCsvHeader(reader) : null;
+            List<Row> chunk = new ArrayList<>(chunkSize);
+            long lineNumber = format == Format.CSV ? 1 : 0;
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                state.total++;
+
+                try {
+                    chunk.add(new Row(lineNumber, format == Format.CSV ? parseCsv(line, csvColumns) : parseJson(line)));
+                } catch (IllegalArgumentException e) {
+                    state.fail(lineNumber, null, e.getMessage());
+                }
+
+                if (chunk.size() == chunkSize) {
+                    importChunk(chunk, state);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                importChunk(chunk, state);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read customer import", e);
+        }
+
+        log.info("Customer import finished in {} ms: {} row(s), {} imported, {} failed",
+                System.currentTimeMillis() - started, state.total, state.imported, state.failed);
+
+        return CustomerImportResultDTO.builder()
+                .total(state.total)
+                .imported(state.imported)
+                .failed(state.failed)
+                .errors(state.errors)
+                .errorsTruncated(state.failed > state.errors.size())
+                .build();
+    }
+
+    private void importChunk(List<Row> chunk, ImportState state) {
+        // Validation and duplicates within the file, keyed by normalized email like the lookup below
+        Map<String, Row> candidates = new LinkedHashMap<>();
+        for (Row row : chunk) {
+            Set<ConstraintViolation<RegisterRequestDTO>> violations = validator.validate(row.customer());
+            if (!violations.isEmpty()) {
+                state.fail(row.line(), row.customer().getEmail(), violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+            } else if (!state.seenEmails.add(normalize(row.customer().getEmail()))) {
+                state.fail(row.line(), row.customer().getEmail(), "Duplicate email in file");
+            } else {
+                candidates.put(normalize(row.customer().getEmail()), row);
+            }
+        }
+
+        // Already registered, one query per chunk
+        if (!candidates.isEmpty()) {
+            for (String existing : userRepository.findExistingNormalizedEmails(candidates.keySet())) {
+                Row row = candidates.remove(existing);
+                if (row != null) {
+                    state.fail(row.line(), row.customer().getEmail(), "Email already exists");
+                }
+            }
+        }
+        if (candidates.isEmpty()) {
+            return;
+        }
+
+        Map<Row, User> users = hashPasswords(candidates.values(), state);
+        if (!users.isEmpty()) {
+            insert(users, state);
+        }
+    }
+
+    private Map<Row, User> hashPasswords(Collection<Row> rows, ImportState state) {
+        Semaphore inFlight = new Semaphore(hashConcurrency);
+        Map<Row, CompletableFuture<String>> hashes = new LinkedHashMap<>();
+        for (Row row : rows) {
+            inFlight.acquireUninterruptibly();
+            CompletableFuture<String> hash = passwordEncoder.encodeAsync(row.customer().getPassword());
+            hash.whenComplete((value, error) -> inFlight.release());
+            hashes.put(row, hash);
+        }
+
+        Map<Row, User> users = new LinkedHashMap<>();
+        hashes.forEach((row, hash) -> {
+            try {
+                users.put(row, toUser(row.customer(), hash.join()));
+            } catch (CompletionException e) {
+                state.fail(row.line(), row.customer().getEmail(), "Password hashing failed: " + e.getCause().getMessage());
+            }
+        });
+        return users;
+    }
+
+    // One batched insert per chunk. If it fails, rows are retried alone so one bad row does not sink the chunk
+    private void insert(Map<Row, User> users, ImportState state) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> userRepository.saveAll(users.values()));
+            users.values().forEach(user -> registeredEmailFilter.add(user.getEmail()));
+            state.imported += users.size();
+            return;
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Batch insert of {} customer(s) failed, retrying row by row: {}",
+                    users.size(), e.getMostSpecificCause().getMessage());
+        }
+
+        users.forEach((row, user) -> {
+            user.setId(null);
+            try {
+                transactionTemplate.executeWithoutResult(status -> userRepository.save(user));
+                registeredEmailFilter.add(user.getEmail());
+                state.imported++;
+            } catch (DataIntegrityViolationException e) {
+                state.fail(row.line(), user.getEmail(), "Rejected by the database: " + e.getMostSpecificCause().getMessage());
+            }
+        });
+    }
+
+    private static User toUser(RegisterRequestDTO customer, String passwordHash) {
+        return User.builder()
+                .firstName(customer.getFirstName())
+                .lastName(customer.getLastName())
+                .email(customer.getEmail())
+                .password(passwordHash)
+                .phoneNumber(customer.getPhoneNumber())
+                .isVerified(false)
+                .build();
+    }
+
+    private RegisterRequestDTO parseJson(String line) {
+        try {
+            return objectMapper.readValue(line, RegisterRequestDTO.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Malformed JSON: " + e.getOriginalMessage());
+        }
+    }
+
+    private static Map<String, Integer> readCsvHeader(BufferedReader reader) throws IOException {
+        String header = reader.readLine();
+        if (header == null) {
+            return Map.of();
+        }
+        // Excel writes a byte order mark in front of the first column
+        if (header.startsWith("\uFEFF")) {
+            header = header.substring(1);
+        }
+
+        Map<String, Integer> columns = new HashMap<>();
+        List<String> names = splitCsv(header);
+        for (int i = 0; i < names.size(); i++) {
+            for (String column : CSV_COLUMNS) {
+                if (column.equalsIgnoreCase(names.get(i).trim())) {
+                    columns.put(column, i);
+                }
+            }
+        }
+        for (String required : List.of("firstName", "lastName", "email", "password")) {
+            if (!columns.containsKey(required)) {
+                throw new InvalidImportException("CSV header is missing the " + required + " column");
+            }
+        }
+        return columns;
+    }
+
+    private static RegisterRequestDTO parseCsv(String line, Map<String, Integer> columns) {
+        List<String> values = splitCsv(line);
+        return RegisterRequestDTO.builder()
+                .firstName(column(values, columns, "firstName"))
+                .lastName(column(values, columns, "lastName"))
+                .email(column(values, columns, "email"))
+                .password(column(values, columns, "password"))
+                .phoneNumber(column(values, columns, "phoneNumber"))
+                .build();
+    }
+
+    private static String column(List<String> values, Map<String, Integer> columns, String name) {
+        Integer index = columns.get(name);
+        if (index == null || index >= values.size()) {
+            return null;
+        }
+        String value = values.get(index).trim();
+        return value.isEmpty() ? null : value;
+    }
+
+    // RFC 4180 fields on one line: commas separate, double quotes wrap and "" escapes a quote
+    private static List<String> splitCsv(String line) {
+        List<String> values = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    current.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    current.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                values.add(current.toString());
+                current.setLength(0);
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        values.add(current.toString());
+        return values;
+    }
+
+    // Emails are matched case-insensitively, in the file and against registered users alike
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private record Row(long line, RegisterRequestDTO customer) {
+    }
+
+    private class ImportState {
+        private final Set<String> seenEmails = new HashSet<>();
+        private final List<CustomerImportResultDTO.RowError> errors = new ArrayList<>();
+        private int total;
+        private int imported;
+        private int failed;
+
+        void fail(long line, String email, String message) {
+            failed++;
+            if (errors.size() < maxReportedErrors) {
+                errors.add(CustomerImportResultDTO.RowError.builder()
+                        .line(line)
+                        .email(email)
+                        .message(message)
+                        .build());
+            }
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.model.EmailOutboxMessage;
+import com.caspercodes.bankingapi.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  Drains the email outbox in batches over pooled SMTP connections.
+  Rows are leased while a batch is in flight, sent rows are deleted and failures
+  are retried with exponential backoff until max attempts, then marked FAILED.
+  OTP emails that outlive their code are marked FAILED with the code cleared instead of being sent
+ */
+@Component
+@Slf4j
+public class EmailOutboxDispatcher {
+
+    private static final long MAX_BACKOFF_SECONDS = 3600;
+
+    private static final String EXPIRED_ERROR = "OTP expired before delivery";
+
+    private final EmailOutboxRepository outboxRepository;
+
+    private final EmailService emailService;
+
+    private final SmtpTransportPool transportPool;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final TaskExecutor emailDispatchExecutor;
+
+    private final AtomicLong queueDepth = new AtomicLong();
+
+    private final Counter sentCounter;
+
+    private final Counter retriedCounter;
+
+    private final Counter deadCounter;
+
+    private final Counter expiredCounter;
+
+    @Value("${email.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${email.outbox.max-batches-per-poll:20}")
+    private int maxBatchesPerPoll;
+
+    @Value("${email.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${email.outbox.backoff-seconds:5}")
+    private long backoffSeconds;
+
+    // How long a claimed batch stays invisible to other dispatchers
+    @Value("${email.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    public EmailOutboxDispatcher(EmailOutboxRepository outboxRepository,
+                                 EmailService emailService,
+                                 SmtpTransportPool transportPool,
+                                 TransactionTemplate transactionTemplate,
+                                 @Qualifier("emailDispatchExecutor") TaskExecutor emailDispatchExecutor,
+                                 MeterRegistry meterRegistry) {
+        this.outboxRepository = outboxRepository;
+        this.emailService = emailService;
+        this.transportPool = transportPool;
+        this.transactionTemplate = transactionTemplate;
+        this.emailDispatchExecutor = emailDispatchExecutor;
+
+        Gauge.builder("email.outbox.depth", queueDepth, AtomicLong::get)
+                .description("Pending messages in the email outbox")
+                .register(meterRegistry);
+        this.sentCounter = Counter.builder("email.outbox.sent").register(meterRegistry);
+        this.retriedCounter = Counter.builder("email.outbox.retried").register(meterRegistry);
+        this.deadCounter = Counter.builder("email.outbox.dead").register(meterRegistry);
+        this.expiredCounter = Counter.builder("email.outbox.expired").register(meterRegistry);
+    }
+
+    public long getQueueDepth() {
+        return queueDepth.get();
+    }
+
+    @Scheduled(fixedDelayString = "${email.outbox.poll-interval-ms:500}")
+    public void dispatch() {
+        expireStaleOtps();
+
+        // One worker per pooled connection, each drains batches until the outbox is empty
+        CompletableFuture<?>[] workers = new CompletableFuture<?>[transportPool.getSize()];
+        for (int i = 0; i < workers.length; i++) {
+            workers[i] = CompletableFuture.runAsync(this::drain, emailDispatchExecutor);
+        }
+        CompletableFuture.allOf(workers).join();
+
+        queueDepth.set(outboxRepository.countByStatus(EmailOutboxMessage.Status.PENDING));
+    }
+
+    private void drain() {
+        Transport transport = null;
+        boolean healthy = true;
+        try {
+            for (int i = 0; i < maxBatchesPerPoll && healthy; i++) {
+                List<EmailOutboxMessage> batch = claimBatch();
+                if (batch.isEmpty()) {
+                    return;
+                }
+
+                if (transport == null) {
+                    try {
+                        transport = transportPool.borrow();
+                    } catch (MessagingException e) {
+                        log.warn("SMTP relay unavailable, rescheduling {} email(s): {}", batch.size(), e.getMessage());
+                        Map<Long, String> failures = new HashMap<>();
+                        batch.forEach(message -> failures.put(message.getId(), e.getMessage()));
+                        complete(batch, failures);
+                        return;
+                    }
+                }
+
+                healthy = sendBatch(transport, batch);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            log.error("Email outbox dispatch failed", e);
+        } finally {
+            if (transport != null) {
+                transportPool.release(transport, healthy);
+            }
+        }
+    }
+
+    // Clears codes from OTP emails still waiting out a backoff after they expired
+    private void expireStaleOtps() {
+        Integer expired = transactionTemplate.execute(status ->
+                outboxRepository.expireStaleOtps(LocalDateTime.now(), EXPIRED_ERROR));
+        if (expired != null && expired > 0) {
+            expiredCounter.increment(expired);
+            log.info("Dropped {} expired OTP email(s) from the outbox", expired);
+        }
+    }
+
+    // Lock due rows, push their next attempt past the lease and count the attempt.
+    // OTPs that expired since the last sweep are given up on here rather than sent
+    private List<EmailOutboxMessage> claimBatch() {
+        List<EmailOutboxMessage> batch = transactionTemplate.execute(status -> {
+            LocalDateTime now = LocalDateTime.now();
+            List<EmailOutboxMessage> due = outboxRepository.lockDueBatch(now, batchSize);
+            List<EmailOutboxMessage> live = new ArrayList<>(due.size());
+            for (EmailOutboxMessage message : due) {
+                if (message.isExpired(now)) {
+                    message.setStatus(EmailOutboxMessage.Status.FAILED);
+                    message.setPayload(null);
+                    message.setLastError(EXPIRED_ERROR);
+                    expiredCounter.increment();
+                    continue;
+                }
+                message.setAttempts(message.getAttempts() + 1);
+                message.setNextAttemptAt(now.plusSeconds(leaseSeconds));
+                live.add(message);
+            }
+            return live;
+        });
+        return batch != null ? batch : List.of();
+    }
+
+    // Returns false once the connection is broken, the rest of the batch is then rescheduled
+    private boolean sendBatch(Transport transport, List<EmailOutboxMessage> batch) {
+        Map<Long, String> failures = new HashMap<>();
+        boolean healthy = true;
+
+        for (EmailOutboxMessage outboxMessage : batch) {
+            if (!healthy) {
+                failures.put(outboxMessage.getId(), "SMTP connection lost");
+                continue;
+            }
+            try {
+                MimeMessage message = emailService.compose(outboxMessage, transportPool.getSession());
+                transport.sendMessage(message, message.getAllRecipients());
+            } catch (MessagingException e) {
+                log.warn("Failed to send {} email to: {}. Error: {}",
+                        outboxMessage.getType(), outboxMessage.getRecipient(), e.getMessage());
+                failures.put(outboxMessage.getId(), e.getMessage());
+                healthy = transport.isConnected();
+            }
+        }
+
+        complete(batch, failures);
+        return healthy;
+    }
+
+    private void complete(List<EmailOutboxMessage> batch, Map<Long, String> failures) {
+        List<Long> sentIds = new ArrayList<>(batch.size());
+        List<EmailOutboxMessage> failed = new ArrayList<>(failures.size());
+        for (EmailOutboxMessage message : batch) {
+            if (failures.containsKey(message.getId())) {
+                failed.add(message);
+            } else {
+                sentIds.add(message.getId());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!sentIds.isEmpty()) {
+                outboxRepository.deleteAllByIdInBatch(sentIds);
+            }
+
+            LocalDateTime now = LocalDateTime.now();
+            for (EmailOutboxMessage message : failed) {
+                message.setLastError(truncate(failures.get(message.getId())));
+                if (message.getAttempts() >= maxAttempts) {
+                    message.setStatus(EmailOutboxMessage.Status.FAILED);
+                    message.setPayload(null);
+                    deadCounter.increment();
+                    log.error("Giving up on {} email to: {} after {} attempts",
+                            message.getType(), message.getRecipient(), message.getAttempts());
+                } else {
+                    message.setNextAttemptAt(now.plusSeconds(backoff(message.getAttempts())));
+                    retriedCounter.increment();
+                }
+            }
+            if (!failed.isEmpty()) {
+                outboxRepository.saveAll(failed);
+            }
+        });
+
+        sentCounter.increment(sentIds.size());
+        if (!sentIds.isEmpty()) {
+            log.info("Sent {} email(s) from the outbox", sentIds.size());
+        }
+    }
+
+    private long backoff(int attempts) {
+        long multiplier = 1L << Math.min(attempts - 1, 20);
+        return Math.min(backoffSeconds * multiplier, MAX_BACKOFF_SECONDS);
+    }
+
+    private static String truncate(String error) {
+        if (error == null || error.length() <= 500) {
+            return error;
+        }
+        return error.substring(0, 500);
+    }
+}
@@ -0,0 +1,192 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.model.IdempotencyRecord;
+import com.caspercodes.bankingapi.repository.IdempotencyRecordRepository;
+import com.caspercodes.bankingapi.util.TokenHasher;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+/*
+  Claims and answers Idempotency-Keys. Redis is the fast path: SET NX claims a key, and the stored response
+  answers retries without running the request again. Durable keys, used for money moving calls, are
+  also claimed in Postgres, which stays authoritative when Redis is down or has lost the key.
+  Plain keys fail open when Redis is unavailable, durable ones never do
+ */
+@Service
+@Slf4j
+public class IdempotencyService {
+
+    private static final String KEY_PREFIX = "idempotency:";
+
+    private final RedisTemplate<String, String> otpRedisTemplate;
+
+    private final IdempotencyRecordRepository recordRepository;
+
+    private final ObjectMapper objectMapper;
+
+    // How long a completed response is replayed
+    private final Duration ttl;
+
+    // How long a plain key stays claimed by a request that never completes, e.g. after a crash
+    private final Duration lockTimeout;
+
+    public IdempotencyService(RedisTemplate<String, String> otpRedisTemplate,
+                              IdempotencyRecordRepository recordRepository,
+                              ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${idempotency.lock-seconds:60}") long lockSeconds) {
+        this.otpRedisTemplate = otpRedisTemplate;
+        this.recordRepository = recordRepository;
+        this.objectMapper = objectMapper;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.lockTimeout = Duration.ofSeconds(lockSeconds);
+    }
+
+    public record StoredResponse(int status, String contentType, String body) {
+    }
+
+    public enum Status {
+        // The caller owns the key and runs the request
+        ACQUIRED,
+        // Nothing could record the key, the request runs without idempotency
+        UNAVAILABLE,
+        IN_PROGRESS,
+        COMPLETED,
+        // Same key with a different request
+        MISMATCH
+    }
+
+    public record Claim(Status status, StoredResponse response) {
+    }
+
+    // Redis value, state plus the response once completed
+    record Entry(IdempotencyRecord.State state, String fingerprint, StoredResponse response) {
+    }
+
+    public static String keyHash(String scope, String idempotencyKey) {
+        return TokenHasher.sha256Hex(scope + "\n" + idempotencyKey);
+    }
+
+    public Claim claim(String keyHash, String fingerprint, boolean durable) {
+        Claim fast = claimInRedis(keyHash, fingerprint);
+        if (!durable || (fast.status() != Status.ACQUIRED && fast.status() != Status.UNAVAILABLE)) {
+            return fast;
+        }
+
+        // Durable keys are only ours once Postgres agrees, Redis may have lost a completed key.
+        // A durable claim of a request that never completes stays until the ttl, money is not moved twice
+        Claim durableClaim;
+        try {
+            LocalDateTime now = LocalDateTime.now();
+            if (recordRepository.claim(keyHash, fingerprint, now, now.plus(ttl)) == 1) {
+                return new Claim(Status.ACQUIRED, null);
+            }
+            durableClaim = recordRepository.findById(keyHash)
+                    .map(record -> fromRecord(record, fingerprint))
+                    .orElse(new Claim(Status.IN_PROGRESS, null));
+        } catch (DataAccessException e) {
+            if (fast.status() == Status.ACQUIRED) {
+                deleteQuietly(keyHash);
+            }
+            throw e;
+        }
+
+        if (durableClaim.status() == Status.COMPLETED) {
+            // Put it back in Redis so the next retry does not reach Postgres
+            store(keyHash, new Entry(IdempotencyRecord.State.COMPLETED, fingerprint, durableClaim.response()), ttl);
+        } else if (fast.status() == Status.ACQUIRED) {
+            deleteQuietly(keyHash);
+        }
+        return durableClaim;
+    }
+
+    public void complete(String keyHash, String fingerprint, StoredResponse response, boolean durable) {
+        if (durable) {
+            recordRepository.complete(keyHash, response.status(), response.contentType(), response.body(),
+                    LocalDateTime.now().plus(ttl));
+        }
+        store(keyHash, new Entry(IdempotencyRecord.State.COMPLETED, fingerprint, response), ttl);
+    }
+
+    // Frees the key after a server error so the client can retry it
+    public void release(String keyHash, boolean durable) {
+        if (durable) {
+            recordRepository.release(keyHash);
+        }
+        deleteQuietly(keyHash);
+    }
+
+    @Scheduled(cron = "${idempotency.purge.cron:0 30 * * * *}")
+    public void purgeExpired() {
+        int deleted = recordRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency record(s)", deleted);
+        }
+    }
+
+    private Claim claimInRedis(String keyHash, String fingerprint) {
+        try {
+            String inProgress = objectMapper.writeValueAsString(
+                    new Entry(IdempotencyRecord.State.IN_PROGRESS, fingerprint, null));
+            Boolean claimed = otpRedisTemplate.opsForValue().setIfAbsent(KEY_PREFIX + keyHash, inProgress, lockTimeout);
+            if (Boolean.TRUE.equals(claimed)) {
+                return new Claim(Status.ACQUIRED, null);
+            }
+
+            String existing = otpRedisTemplate.opsForValue().get(KEY_PREFIX + keyHash);
+            if (existing == null) {
+                // Expired between the two calls, let the client retry rather than racing for it
+                return new Claim(Status.IN_PROGRESS, null);
+            }
+            return fromEntry(objectMapper.readValue(existing, Entry.class), fingerprint);
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Idempotency key check skipped in Redis: {}", e.getMessage());
+            return new Claim(Status.UNAVAILABLE, null);
+        }
+    }
+
+    private void store(String keyHash, Entry entry, Duration expiry) {
+        try {
+            otpRedisTemplate.opsForValue().set(KEY_PREFIX + keyHash, objectMapper.writeValueAsString(entry), expiry);
+        } catch (DataAccessException | JsonProcessingException e) {
+            log.warn("Could not store idempotent response in Redis: {}", e.getMessage());
+        }
+    }
+
+    private void deleteQuietly(String keyHash) {
+        try {
+            otpRedisTemplate.delete(KEY_PREFIX + keyHash);
+        } catch (DataAccessException e) {
+            log.warn("Could not release idempotency key in Redis: {}", e.getMessage());
+        }
+    }
+
+    private static Claim fromEntry(Entry entry, String fingerprint) {
+        if (!entry.fingerprint().equals(fingerprint)) {
+            return new Claim(Status.MISMATCH, null);
+        }
+        return entry.state() == IdempotencyRecord.State.COMPLETED
+                ? new Claim(Status.COMPLETED, entry.response())
+                : new Claim(Status.IN_PROGRESS, null);
+    }
+
+    private static Claim fromRecord(IdempotencyRecord record, String fingerprint) {
+        if (!record.getFingerprint().equals(fingerprint)) {
+            return new Claim(Status.MISMATCH, null);
+        }
+        if (record.getState() == IdempotencyRecord.State.COMPLETED) {
+            return new Claim(Status.COMPLETED, new StoredResponse(
+                    record.getResponseStatus(), record.getResponseContentType(), record.getResponseBody()));
+        }
+        return new Claim(Status.IN_PROGRESS, null);
+    }
+}
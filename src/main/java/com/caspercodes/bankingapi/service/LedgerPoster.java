@@ -0,0 +1,179 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.TransferResponseDTO;
+import com.caspercodes.bankingapi.exception.AccountNotFoundException;
+import com.caspercodes.bankingapi.exception.InsufficientFundsException;
+import com.caspercodes.bankingapi.exception.TransferRejectedException;
+import com.caspercodes.bankingapi.model.Account;
+import com.caspercodes.bankingapi.model.BalanceCheckpoint;
+import com.caspercodes.bankingapi.model.JournalEntry;
+import com.caspercodes.bankingapi.repository.AccountRepository;
+import com.caspercodes.bankingapi.repository.BalanceCheckpointRepository;
+import com.caspercodes.bankingapi.repository.JournalEntryRepository;
+import com.caspercodes.bankingapi.util.Money;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+  Posts a group of transfers inside the caller's transaction.
+  All accounts of the group are locked with one ordered SELECT ... FOR UPDATE and loaded into a BalanceProjection,
+  which checks each transfer against the balances left by the ones before it and applies only the valid ones,
+  so a rejected transfer is simply left out of the group.
+  Every entry takes the next number of its account's posting sequence, and every checkpoint-interval-th one
+  also records a balance checkpoint. The balance updates, journal and checkpoint inserts are flushed together
+  as JDBC batches at commit
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class LedgerPoster {
+
+    private final AccountRepository accountRepository;
+
+    private final JournalEntryRepository journalEntryRepository;
+
+    private final BalanceCheckpointRepository balanceCheckpointRepository;
+
+    @Value("${ledger.checkpoint-interval:100}")
+    private int checkpointInterval;
+
+    // Owner id of postings the bank makes itself, such as deposits. It only matches accounts without an owner
+    public static final long SYSTEM_OWNER = 0;
+
+    // Amount in minor units of the currency the caller expects both accounts to have
+    public record Posting(long ownerId, long fromId, long toId, long amount, String currency, String description) {
+    }
+
+    // Either the posted transfer or the reason it was rejected
+    public record Outcome(TransferResponseDTO result, RuntimeException error) {
+
+        public TransferResponseDTO getOrThrow() {
+            if (error != null) {
+                throw error;
+            }
+            return result;
+        }
+    }
+
+    // Must run in a transaction, outcomes are in posting order. Database errors propagate and roll back the group
+    public List<Outcome> post(List<Posting> postings) {
+        TreeSet<Long> ids = new TreeSet<>();
+        for (Posting posting : postings) {
+            ids.add(posting.fromId());
+            ids.add(posting.toId());
+        }
+        Map<Long, Account> accounts = accountRepository.lockAllByIdInOrder(ids).stream()
+                .collect(Collectors.toMap(Account::getId, Function.identity()));
+
+        BalanceProjection projection = new BalanceProjection(accounts.size());
+        for (Account account : accounts.values()) {
+            projection.addAccount(account.getId(),
+                    account.getOwner() != null ? account.getOwner().getId() : SYSTEM_OWNER,
+                    account.getCurrency(),
+                    account.getStatus() == Account.Status.ACTIVE,
+                    account.getType() == Account.Type.CLEARING,
+                    account.getBalance(),
+                    account.getPostingSequence());
+        }
+        projection.apply(postings);
+
+        LocalDateTime postedAt = LocalDateTime.now();
+        List<Outcome> outcomes = new ArrayList<>(postings.size());
+        List<JournalEntry> entries = new ArrayList<>(postings.size() * 2);
+        List<BalanceCheckpoint> checkpoints = new ArrayList<>();
+        for (int i = 0; i < postings.size(); i++) {
+            Posting posting = postings.get(i);
+            int result = projection.result(i);
+            if (result != BalanceProjection.POSTED) {
+                outcomes.add(new Outcome(null, rejection(result, posting, accounts)));
+                continue;
+            }
+
+            Account from = accounts.get(posting.fromId());
+            Account to = accounts.get(posting.toId());
+            UUID transferId = UUID.randomUUID();
+            entries.add(record(transferId, from, JournalEntry.Direction.DEBIT, posting, postedAt,
+                    projection.fromBalanceAfter(i), projection.fromSequence(i), checkpoints));
+            entries.add(record(transferId, to, JournalEntry.Direction.CREDIT, posting, postedAt,
+                    projection.toBalanceAfter(i), projection.toSequence(i), checkpoints));
+
+            log.debug("Transfer {} of {} from {} to {}", transferId, Money.ofMinor(posting.amount(), posting.currency()),
+                    from.getAccountNumber(), to.getAccountNumber());
+
+            outcomes.add(new Outcome(TransferResponseDTO.builder()
+                    .transferId(transferId)
+                    .fromAccountNumber(from.getAccountNumber())
+                    .toAccountNumber(to.getAccountNumber())
+                    .amount(Money.toDecimal(posting.amount(), posting.currency()))
+                    .currency(posting.currency())
+                    .balanceAfter(Money.toDecimal(posting.ownerId() == SYSTEM_OWNER
+                            ? projection.toBalanceAfter(i)
+                            : projection.fromBalanceAfter(i), posting.currency()))
+                    .postedAt(postedAt)
+                    .build(), null));
+        }
+
+        if (!entries.isEmpty()) {
+            for (Account account : accounts.values()) {
+                account.setBalance(projection.balance(account.getId()));
+                account.setPostingSequence(projection.sequence(account.getId()));
+            }
+            journalEntryRepository.saveAll(entries);
+        }
+        if (!checkpoints.isEmpty()) {
+            balanceCheckpointRepository.saveAll(checkpoints);
+        }
+        return outcomes;
+    }
+
+    private static RuntimeException rejection(int result, Posting posting, Map<Long, Account> accounts) {
+        Account from = accounts.get(posting.fromId());
+        return switch (result) {
+            // Someone else's source account is reported as missing, like in AccountService
+            case BalanceProjection.ACCOUNT_NOT_FOUND -> new AccountNotFoundException("Account not found");
+            case BalanceProjection.NOT_OWNER -> new AccountNotFoundException("Account not found: " + from.getAccountNumber());
+            case BalanceProjection.INACTIVE -> new TransferRejectedException("Both accounts must be active");
+            case BalanceProjection.CURRENCY_MISMATCH -> new TransferRejectedException("Accounts must have the same currency");
+            case BalanceProjection.INSUFFICIENT_FUNDS ->
+                    new InsufficientFundsException("Insufficient funds in account " + from.getAccountNumber());
+            case BalanceProjection.OVERFLOW -> new TransferRejectedException("Transfer exceeds the maximum account balance");
+            default -> new IllegalStateException("Unknown posting result: " + result);
+        };
+    }
+
+    private JournalEntry record(UUID transferId, Account account, JournalEntry.Direction direction, Posting posting,
+                                LocalDateTime postedAt, long balanceAfter, long sequenceNo,
+                                List<BalanceCheckpoint> checkpoints) {
+        if (sequenceNo % checkpointInterval == 0) {
+            checkpoints.add(BalanceCheckpoint.builder()
+                    .accountId(account.getId())
+                    .sequenceNo(sequenceNo)
+                    .balance(balanceAfter)
+                    .createdAt(postedAt)
+                    .build());
+        }
+
+        return JournalEntry.builder()
+                .transferId(transferId)
+                .accountId(account.getId())
+                .sequenceNo(sequenceNo)
+                .direction(direction)
+                .amount(posting.amount())
+                .currency(account.getCurrency())
+                .balanceAfter(balanceAfter)
+                .description(posting.description())
+                .createdAt(postedAt)
+                .build();
+    }
+}
@@ -0,0 +1,115 @@
+package com.caspercodes.bankingapi.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+  Write-behind for last_login_at. Logins are coalesced per user in memory and flushed as one JDBC batch
+  every few seconds, touching only that column instead of a full users row update per login.
+  At most one flush interval of timestamps is lost if the process dies, they are flushed on a normal shutdown
+ */
+@Component
+@Slf4j
+public class LoginActivityRecorder implements DisposableBean {
+
+    private static final String UPDATE_SQL =
+            "UPDATE users SET last_login_at = ? WHERE id = ? AND (last_login_at IS NULL OR last_login_at < ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    private final int batchSize;
+
+    // Pending users that trigger a flush on the recording thread instead of waiting for the schedule
+    private final int maxPending;
+
+    public LoginActivityRecorder(JdbcTemplate jdbcTemplate,
+                                 @Value("${login-activity.batch-size:500}") int batchSize,
+                                 @Value("${login-activity.max-pending:10000}") int maxPending) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+        this.maxPending = maxPending;
+    }
+
+    public void recordLogin(Long userId, LocalDateTime loginAt) {
+        pending.merge(userId, loginAt, (previous, current) -> current.isAfter(previous) ? current : previous);
+        if (pending.size() >= maxPending && flushLock.tryLock()) {
+            try {
+                flushPending();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${login-activity.flush-interval-ms:5000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            flushPending();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushPending() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>(Math.min(pending.size(), batchSize));
+        int flushed = 0;
+        for (Long userId : pending.keySet()) {
+            LocalDateTime loginAt = pending.remove(userId);
+            if (loginAt == null) {
+                continue;
+            }
+            Timestamp timestamp = Timestamp.valueOf(loginAt);
+            batch.add(new Object[]{timestamp, userId, timestamp});
+            if (batch.size() == batchSize) {
+                flushed += write(batch);
+                batch = new ArrayList<>(batchSize);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flushed += write(batch);
+        }
+
+        log.debug("Flushed last login time for {} user(s)", flushed);
+    }
+
+    private int write(List<Object[]> batch) {
+        try {
+            jdbcTemplate.batchUpdate(UPDATE_SQL, batch);
+            return batch.size();
+        } catch (RuntimeException e) {
+            // Requeue for the next flush, newer logins recorded meanwhile win
+            for (Object[] row : batch) {
+                pending.merge((Long) row[1], ((Timestamp) row[0]).toLocalDateTime(),
+                        (current, failed) -> current.isAfter(failed) ? current : failed);
+            }
+            log.warn("Failed to flush login activity for {} user(s), will retry: {}", batch.size(), e.getMessage());
+            return 0;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        flush();
+    }
+}
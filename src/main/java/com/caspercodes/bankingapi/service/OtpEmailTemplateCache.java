@@ -0,0 +1,114 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.model.EmailOutboxMessage;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+/*
+  Renders the OTP email once per type at startup with placeholder markers, then splits it around them.
+  A send only concatenates the static pieces with the code and expiry, no Thymeleaf parsing per email
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class OtpEmailTemplateCache {
+
+    private static final String TEMPLATE = "email/otp-email";
+
+    private static final String OTP_MARKER = "%%OTP%%";
+
+    private static final String EXPIRY_MARKER = "%%EXPIRY_MINUTES%%";
+
+    private static final int OTP_SLOT = 0;
+
+    private static final int EXPIRY_SLOT = 1;
+
+    private final SpringTemplateEngine templateEngine;
+
+    private final Map<EmailOutboxMessage.EmailType, PreRenderedTemplate> templates =
+            new EnumMap<>(EmailOutboxMessage.EmailType.class);
+
+    @PostConstruct
+    void init() {
+        templates.put(EmailOutboxMessage.EmailType.REGISTRATION_OTP, preRender(
+                "Hello!",
+                "We received a request to verify your email address. " +
+                        "Please use the verification code below to complete your registration.",
+                "Your Verification Code"));
+        templates.put(EmailOutboxMessage.EmailType.LOGIN_OTP, preRender(
+                "Welcome back!",
+                "We detected a login attempt to your account. " +
+                        "Please use the verification code below to complete your login.",
+                "Your Login Verification Code"));
+
+        log.info("Pre-rendered OTP email templates for: {}", templates.keySet());
+    }
+
+    // Fills the pre-rendered shell for the type, the code is digits only so needs no escaping
+    public String render(EmailOutboxMessage.EmailType type, String otp, int expiryMinutes) {
+        PreRenderedTemplate template = templates.get(type);
+        if (template == null) {
+            throw new IllegalArgumentException("No pre-rendered OTP template for: " + type);
+        }
+        return template.render(otp, Integer.toString(expiryMinutes));
+    }
+
+    private PreRenderedTemplate preRender(String greeting, String message, String subject) {
+        Context context = new Context();
+        context.setVariable("greeting", greeting);
+        context.setVariable("message", message);
+        context.setVariable("otp", OTP_MARKER);
+        context.setVariable("expiryMinutes", EXPIRY_MARKER);
+        context.setVariable("subject", subject);
+
+        String html = templateEngine.process(TEMPLATE, context);
+
+        List<String> parts = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        int position = 0;
+        while (true) {
+            int otpAt = html.indexOf(OTP_MARKER, position);
+            int expiryAt = html.indexOf(EXPIRY_MARKER, position);
+            if (otpAt < 0 && expiryAt < 0) {
+                break;
+            }
+
+            boolean otpFirst = otpAt >= 0 && (expiryAt < 0 || otpAt < expiryAt);
+            int markerAt = otpFirst ? otpAt : expiryAt;
+            parts.add(html.substring(position, markerAt));
+            slots.add(otpFirst ? OTP_SLOT : EXPIRY_SLOT);
+            position = markerAt + (otpFirst ? OTP_MARKER : EXPIRY_MARKER).length();
+        }
+        parts.add(html.substring(position));
+
+        if (!slots.contains(OTP_SLOT)) {
+            throw new IllegalStateException("Template " + TEMPLATE + " does not render the otp variable");
+        }
+
+        return new PreRenderedTemplate(
+                parts.toArray(String[]::new),
+                slots.stream().mapToInt(Integer::intValue).toArray(),
+                html.length());
+    }
+
+    // parts[i] is followed by the value of slots[i], the last part closes the document
+    private record PreRenderedTemplate(String[] parts, int[] slots, int staticLength) {
+
+        String render(String otp, String expiryMinutes) {
+            StringBuilder html = new StringBuilder(staticLength + slots.length * 8);
+            for (int i = 0; i < slots.length; i++) {
+                html.append(parts[i]).append(slots[i] == OTP_SLOT ? otp : expiryMinutes);
+            }
+            return html.append(parts[slots.length]).toString();
+        }
+    }
+}
@@ -4,33 +4,46 @@ import com.caspercodes.bankingapi.exception.InvalidOtpException;
 import com.caspercodes.bankingapi.exception.OtpExpiredException;
 import com.caspercodes.bankingapi.exception.TooManyAttemptsException;
 import com.caspercodes.bankingapi.model.OtpData;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.caspercodes.bankingapi.repository.OtpRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Service;
 
 import java.security.SecureRandom;
 import java.time.LocalDateTime;
-import java.util.concurrent.TimeUnit;
+import java.util.List;
 
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class OtpService {
 
-    private static final String OTP_PREFIX = "otp:";
-
     private static final String LOCK_PREFIX = "otp-lock:";
 
     private static final SecureRandom random = new SecureRandom();
 
+    // Status codes returned by scripts/otp-verify.lua
+    private static final long VERIFY_LOCKED = 1;
+
+    private static final long VERIFY_MISSING = 2;
+
+    private static final long VERIFY_INVALID = 3;
+
+    private static final long VERIFY_LOCKED_NOW = 4;
+
     private final RedisTemplate<String, Object> redisTemplate;
 
-    private final EmailService emailService;
+    private final RedisTemplate<String, String> otpRedisTemplate;
 
-    private final ObjectMapper objectMapper;
+    private final OtpRepository otpRepository;
+
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> otpVerifyScript;
+
+    private final EmailService emailService;
 
     @Value("${otp.expiration:300}")
     private int otpExpiration;
@@ -66,8 +79,7 @@ public class OtpService {
                 .build();
 
 
-        String key = OTP_PREFIX + email;
-        redisTemplate.opsForValue().set(key, otpData, otpExpiration, TimeUnit.SECONDS);
+        otpRepository.save(email, otpData, otpExpiration);
         log.info("OTP generated and stored in Redis for email: {}", email);
 
 
@@ -81,62 +93,45 @@ public class OtpService {
     public void verifyOtp(String email, String code) {
         log.info("Verifying OTP for email: {}", email);
 
+        // Lock check, code comparison, attempt counting and locking run as one atomic script
+        List<?> result = otpRedisTemplate.execute(
+                otpVerifyScript,
+                List.of(OtpRepository.key(email), LOCK_PREFIX + email),
+                code, String.valueOf(maxAttempts), String.valueOf(lockDuration)
+        );
 
-        if (isUserLocked(email)) {
+        if (result == null || result.size() != 2) {
+            throw new IllegalStateException("Unexpected OTP verification result from Redis: " + result);
+        }
+
+        long status = (Long) result.get(0);
+        long attempts = (Long) result.get(1);
+
+        if (status == VERIFY_LOCKED) {
             throw new TooManyAttemptsException(
                     "Too many failed attempts. Please try again in 15 minutes."
             );
         }
 
-
-        String key = OTP_PREFIX + email;
-        Object rawOtpData = redisTemplate.opsForValue().get(key);
-
-
-        if (rawOtpData == null) {
+        if (status == VERIFY_MISSING) {
             log.warn("OTP not found or expired for: {}", email);
             throw new OtpExpiredException("OTP has expired. Please request a new one.");
         }
 
-        // Convert to OtpData (handles both direct OtpData and LinkedHashMap from Redis)
-        OtpData otpData = convertToOtpData(rawOtpData);
-
-
-        if (otpData.getExpiredAt().isBefore(LocalDateTime.now())) {
-            log.warn("OTP expired for: {}", email);
-            redisTemplate.delete(key);
-            throw new OtpExpiredException("OTP has expired. Please request a new one.");
-        }
-
-
-        if (otpData.getAttempts() >= maxAttempts) {
-            log.warn("Max OTP attempts exceeded for: {}", email);
-            lockUser(email);
-            redisTemplate.delete(key);
+        if (status == VERIFY_LOCKED_NOW) {
+            log.warn("User with email: {} has been locked for {} seconds due to multiple failed OTP attempts", email, lockDuration);
             throw new TooManyAttemptsException(
                     "Too many failed attempts. Account locked for 15 minutes."
             );
         }
 
-
-        if (!otpData.getCode().equals(code)) {
-            log.warn("Invalid OTP attempt for: {}. Attempts: {}", email, otpData.getAttempts() + 1);
-
-
-            otpData.setAttempts(otpData.getAttempts() + 1);
-
-
-            long ttl = redisTemplate.getExpire(key, TimeUnit.SECONDS);
-            redisTemplate.opsForValue().set(key, otpData, ttl, TimeUnit.SECONDS);
-
+        if (status == VERIFY_INVALID) {
+            log.warn("Invalid OTP attempt for: {}. Attempts: {}", email, attempts);
             throw new InvalidOtpException(
-                    String.format("Invalid OTP. %d attempts remaining.",
-                            maxAttempts - otpData.getAttempts())
+                    String.format("Invalid OTP. %d attempts remaining.", maxAttempts - attempts)
             );
         }
 
-
-        redisTemplate.delete(key);
         log.info("OTP verified successfully for: {}", email);
     }
 
@@ -144,17 +139,13 @@ public class OtpService {
     public void resendOtp(String email) {
         log.info("Resending OTP for email: {}", email);
 
-        String key = OTP_PREFIX + email;
-        Object rawOtpData = redisTemplate.opsForValue().get(key);
-
         OtpData.OtpType type = OtpData.OtpType.LOGIN;
-        if (rawOtpData != null) {
-            try {
-                OtpData existingOtp = convertToOtpData(rawOtpData);
-                type = existingOtp.getType();
-            } catch (Exception e) {
-                log.warn("Could not convert existing OTP data, using default type LOGIN", e);
-            }
+        try {
+            type = otpRepository.findByEmail(email)
+                    .map(OtpData::getType)
+                    .orElse(OtpData.OtpType.LOGIN);
+        } catch (Exception e) {
+            log.warn("Could not read existing OTP data, using default type LOGIN", e);
         }
 
         generateAndSendOtp(email, type);
@@ -167,34 +158,9 @@ public class OtpService {
     }
 
 
-    private void lockUser(String email) {
-        String lockKey = LOCK_PREFIX + email;
-        redisTemplate.opsForValue().set(lockKey, true, lockDuration, TimeUnit.SECONDS);
-        log.warn("User with email: {} has been locked for {} seconds due to multiple failed OTP attempts", email, lockDuration);
-    }
-
-
     private String generateOtpCode() {
         int bound = (int) Math.pow(10, otpLength);
         int otp = random.nextInt(bound);
         return String.format("%0" + otpLength + "d", otp);
     }
-
-    /*
-      Converts Redis retrieved object to OtpData
-      Handles both direct OtpData objects and LinkedHashMap from deserialization
-     */
-    private OtpData convertToOtpData(Object rawData) {
-        if (rawData instanceof OtpData) {
-            return (OtpData) rawData;
-        }
-
-        // Convert LinkedHashMap to OtpData using ObjectMapper
-        try {
-            return objectMapper.convertValue(rawData, OtpData.class);
-        } catch (Exception e) {
-            log.error("Failed to convert Redis data to OtpData", e);
-            throw new RuntimeException("Failed to retrieve OTP data from cache", e);
-        }
-    }
 }
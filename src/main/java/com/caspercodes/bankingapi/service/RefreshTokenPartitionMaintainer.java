@@ -0,0 +1,85 @@
+package com.caspercodes.bankingapi.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+/*
+  For a refresh_tokens table range partitioned by expires_at (db/migrations/002-refresh-tokens-partitioning.sql).
+  Keeps daily partitions created ahead of time and drops whole partitions once every token in them has expired,
+  so old tokens leave without row deletes or index bloat
+ */
+@Component
+@ConditionalOnProperty(name = "refresh-token.partitioning.enabled", havingValue = "true")
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenPartitionMaintainer {
+
+    private static final String PARTITION_PREFIX = "refresh_tokens_p";
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Must cover the refresh token lifetime so every new token has a partition to land in
+    @Value("${refresh-token.partitioning.days-ahead:10}")
+    private int daysAhead;
+
+    // Days after a partition's last expiry before it is dropped
+    @Value("${refresh-token.partitioning.retention-days:1}")
+    private int retentionDays;
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${refresh-token.partitioning.cron:0 5 0 * * *}")
+    public void maintain() {
+        LocalDate today = LocalDate.now();
+        for (int day = -1; day <= daysAhead; day++) {
+            createPartition(today.plusDays(day));
+        }
+        dropExpiredPartitions(today.minusDays(retentionDays));
+    }
+
+    private void createPartition(LocalDate day) {
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + PARTITION_PREFIX + day.format(SUFFIX)
+                + " PARTITION OF refresh_tokens FOR VALUES FROM ('" + day + "') TO ('" + day.plusDays(1) + "')");
+    }
+
+    private void dropExpiredPartitions(LocalDate cutoff) {
+        List<String> partitions = jdbcTemplate.queryForList("""
+                SELECT c.relname FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'refresh_tokens'::regclass
+                """, String.class);
+
+        for (String partition : partitions) {
+            if (!partition.startsWith(PARTITION_PREFIX)) {
+                continue;
+            }
+
+            LocalDate day;
+            try {
+                day = LocalDate.parse(partition.substring(PARTITION_PREFIX.length()), SUFFIX);
+            } catch (DateTimeParseException e) {
+                continue;
+            }
+
+            // Rows in the partition expire before day + 1
+            if (day.plusDays(1).isBefore(cutoff) || day.plusDays(1).isEqual(cutoff)) {
+                jdbcTemplate.execute("ALTER TABLE refresh_tokens DETACH PARTITION " + partition + " CONCURRENTLY");
+                jdbcTemplate.execute("DROP TABLE " + partition);
+                log.info("Dropped expired refresh token partition: {}", partition);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.repository.RefreshTokenRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+
+/*
+  Deletes expired refresh tokens, and revoked ones once they are past the reuse detection window,
+  in small batches that each commit on their own so no delete holds locks for long
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RefreshTokenReaper {
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    @Value("${refresh-token.purge.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${refresh-token.purge.max-batches:500}")
+    private int maxBatches;
+
+    // Revoked tokens are kept this long so a replayed token is still recognised and revokes its family
+    @Value("${refresh-token.purge.revoked-retention-hours:24}")
+    private long revokedRetentionHours;
+
+    @Scheduled(cron = "${refresh-token.purge.cron:0 */15 * * * *}")
+    public void purge() {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime revokedBefore = now.minusHours(revokedRetentionHours);
+
+        long total = 0;
+        for (int batch = 0; batch < maxBatches; batch++) {
+            int deleted = refreshTokenRepository.deletePurgeableBatch(now, revokedBefore, batchSize);
+            total += deleted;
+            if (deleted < batchSize) {
+                break;
+            }
+        }
+
+        if (total > 0) {
+            log.info("Purged {} expired or revoked refresh token(s)", total);
+        }
+    }
+}
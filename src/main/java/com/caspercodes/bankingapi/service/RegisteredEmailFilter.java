@@ -0,0 +1,94 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+  Bloom filter of registered emails, so registering a new email usually skips the existence query.
+  Only an optimisation: a false positive costs one query, and emails registered on other nodes
+  are still caught by the unique constraint. Until the startup load finishes every email "might exist"
+ */
+@Component
+@Slf4j
+public class RegisteredEmailFilter {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BloomFilter filter;
+
+    private final long expectedInsertions;
+
+    private final int fetchSize;
+
+    private volatile boolean loaded;
+
+    public RegisteredEmailFilter(JdbcTemplate jdbcTemplate,
+                                 TransactionTemplate transactionTemplate,
+                                 @Value("${registration.email-filter.expected-insertions:1000000}") long expectedInsertions,
+                                 @Value("${registration.email-filter.false-positive-rate:0.01}") double falsePositiveRate,
+                                 @Value("${registration.email-filter.fetch-size:10000}") int fetchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = transactionTemplate;
+        this.filter = new BloomFilter(expectedInsertions, falsePositiveRate);
+        this.expectedInsertions = expectedInsertions;
+        this.fetchSize = fetchSize;
+    }
+
+    public boolean mightExist(String email) {
+        return !loaded || filter.mightContain(normalize(email));
+    }
+
+    public void add(String email) {
+        filter.put(normalize(email));
+    }
+
+    // Streams every email once with a server side cursor, Postgres only uses one inside a transaction
+    @Async
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long started = System.currentTimeMillis();
+        AtomicLong count = new AtomicLong();
+        try {
+            transactionTemplate.executeWithoutResult(status -> jdbcTemplate.query(
+                    connection -> {
+                        PreparedStatement statement = connection.prepareStatement("SELECT email FROM users",
+                                ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                        statement.setFetchSize(fetchSize);
+                        return statement;
+                    },
+                    (RowCallbackHandler) rs -> {
+                        filter.put(normalize(rs.getString(1)));
+                        count.incrementAndGet();
+                    }));
+        } catch (RuntimeException e) {
+            log.error("Failed to load registered email filter, registrations will query the database", e);
+            return;
+        }
+
+        loaded = true;
+        log.info("Registered email filter loaded with {} email(s) in {} ms", count.get(), System.currentTimeMillis() - started);
+        if (count.get() > expectedInsertions) {
+            log.warn("Registered emails exceed registration.email-filter.expected-insertions ({}), " +
+                    "the false positive rate is higher than configured", expectedInsertions);
+        }
+    }
+
+    private static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,97 @@
+package com.caspercodes.bankingapi.service;
+
+import jakarta.mail.MessagingException;
+import jakarta.mail.Session;
+import jakarta.mail.Transport;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+
+/*
+  Keeps a few SMTP connections open between outbox batches, so each message
+  does not pay for its own TCP, TLS and AUTH handshake with the relay
+ */
+@Component
+@Slf4j
+public class SmtpTransportPool implements DisposableBean {
+
+    private final JavaMailSenderImpl mailSender;
+
+    private final LinkedBlockingQueue<Transport> idle = new LinkedBlockingQueue<>();
+
+    private final Semaphore permits;
+
+    private final int size;
+
+    public SmtpTransportPool(JavaMailSenderImpl mailSender, @Value("${email.smtp.pool-size:2}") int size) {
+        this.mailSender = mailSender;
+        this.size = size;
+        this.permits = new Semaphore(size);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public Session getSession() {
+        return mailSender.getSession();
+    }
+
+    // Borrow a connected transport, reconnecting it if the relay dropped it while idle
+    public Transport borrow() throws MessagingException, InterruptedException {
+        permits.acquire();
+        try {
+            Transport transport = idle.poll();
+            if (transport != null) {
+                // For SMTP this sends a NOOP
+                if (transport.isConnected()) {
+                    return transport;
+                }
+                closeQuietly(transport);
+            }
+            return connect();
+        } catch (MessagingException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    // Return a transport, broken ones are closed instead of being reused
+    public void release(Transport transport, boolean healthy) {
+        if (healthy) {
+            idle.offer(transport);
+        } else {
+            closeQuietly(transport);
+        }
+        permits.release();
+    }
+
+    private Transport connect() throws MessagingException {
+        String protocol = mailSender.getProtocol() != null ? mailSender.getProtocol() : "smtp";
+        Transport transport = mailSender.getSession().getTransport(protocol);
+        transport.connect(mailSender.getHost(), mailSender.getPort(), mailSender.getUsername(), mailSender.getPassword());
+        log.debug("Opened SMTP connection to {}:{}", mailSender.getHost(), mailSender.getPort());
+        return transport;
+    }
+
+    private void closeQuietly(Transport transport) {
+        try {
+            transport.close();
+        } catch (MessagingException e) {
+            log.debug("Failed to close SMTP connection: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public void destroy() {
+        Transport transport;
+        while ((transport = idle.poll()) != null) {
+            closeQuietly(transport);
+        }
+    }
+}
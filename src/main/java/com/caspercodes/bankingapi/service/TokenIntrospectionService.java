@@ -0,0 +1,171 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.TokenIntrospectionResponseDTO;
+import com.caspercodes.bankingapi.repository.RefreshTokenRepository;
+import com.caspercodes.bankingapi.security.TokenVersionService;
+import com.caspercodes.bankingapi.util.JwtUtil;
+import com.caspercodes.bankingapi.util.TokenHasher;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
+import io.jsonwebtoken.JwtException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+/*
+  Validates a batch of tokens in three passes: signatures verified in parallel chunks,
+  then one token version lookup for all subjects and one query for all refresh tokens
+ */
+@Service
+@Slf4j
+public class TokenIntrospectionService {
+
+    private static final int MIN_CHUNK_SIZE = 8;
+
+    private final JwtUtil jwtUtil;
+
+    private final TokenVersionService tokenVersionService;
+
+    private final RefreshTokenRepository refreshTokenRepository;
+
+    private final TaskExecutor tokenVerificationExecutor;
+
+    private final int parallelism;
+
+    public TokenIntrospectionService(JwtUtil jwtUtil,
+                                     TokenVersionService tokenVersionService,
+                                     RefreshTokenRepository refreshTokenRepository,
+                                     @Qualifier("tokenVerificationExecutor") TaskExecutor tokenVerificationExecutor) {
+        this.jwtUtil = jwtUtil;
+        this.tokenVersionService = tokenVersionService;
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.tokenVerificationExecutor = tokenVerificationExecutor;
+        this.parallelism = Runtime.getRuntime().availableProcessors();
+    }
+
+    @Transactional(readOnly = true)
+    public List<TokenIntrospectionResponseDTO.Result> introspect(List<String> tokens) {
+        Parsed[] parsed = verifySignatures(tokens);
+
+        Set<String> subjects = new HashSet<>();
+        List<String> refreshHashes = new ArrayList<>();
+        for (Parsed token : parsed) {
+            if (token.claims() != null) {
+                subjects.add(token.claims().getSubject());
+                if (JwtUtil.REFRESH_TOKEN.equals(JwtUtil.tokenUse(token.claims()))) {
+                    refreshHashes.add(token.refreshHash());
+                }
+            }
+        }
+
+        Map<String, Integer> versions = subjects.isEmpty() ? Map.of() : tokenVersionService.current(subjects);
+        Map<String, RefreshTokenRepository.RefreshTokenHashState> refreshStates = new HashMap<>();
+        if (!refreshHashes.isEmpty()) {
+            refreshTokenRepository.findAllByTokenHashIn(refreshHashes)
+                    .forEach(state -> refreshStates.put(state.getTokenHash(), state));
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<TokenIntrospectionResponseDTO.Result> results = new ArrayList<>(parsed.length);
+        for (Parsed token : parsed) {
+            results.add(evaluate(token, versions, refreshStates, now));
+        }
+
+        log.debug("Introspected {} token(s) for {} subject(s)", parsed.length, subjects.size());
+        return results;
+    }
+
+    // Splits the batch into one chunk per core, small batches are verified on the calling thread
+    private Parsed[] verifySignatures(List<String> tokens) {
+        Parsed[] parsed = new Parsed[tokens.size()];
+        int chunkSize = Math.max(MIN_CHUNK_SIZE, (tokens.size() + parallelism - 1) / parallelism);
+        if (tokens.size() <= chunkSize) {
+            verifyRange(tokens, parsed, 0, tokens.size());
+            return parsed;
+        }
+
+        List<CompletableFuture<Void>> chunks = new ArrayList<>();
+        for (int from = 0; from < tokens.size(); from += chunkSize) {
+            int start = from;
+            int end = Math.min(from + chunkSize, tokens.size());
+            chunks.add(CompletableFuture.runAsync(() -> verifyRange(tokens, parsed, start, end), tokenVerificationExecutor));
+        }
+        CompletableFuture.allOf(chunks.toArray(CompletableFuture[]::new)).join();
+        return parsed;
+    }
+
+    private void verifyRange(List<String> tokens, Parsed[] parsed, int from, int to) {
+        for (int i = from; i < to; i++) {
+            parsed[i] = verify(tokens.get(i));
+        }
+    }
+
+    private Parsed verify(String token) {
+        try {
+            Claims claims = jwtUtil.extractAllClaims(token);
+            String refreshHash = JwtUtil.REFRESH_TOKEN.equals(JwtUtil.tokenUse(claims))
+                    ? TokenHasher.sha256Hex(token)
+                    : null;
+            return new Parsed(claims, refreshHash, null);
+        } catch (ExpiredJwtException e) {
+            return new Parsed(null, null, e.getClaims());
+        } catch (JwtException | IllegalArgumentException e) {
+            return new Parsed(null, null, null);
+        }
+    }
+
+    private TokenIntrospectionResponseDTO.Result evaluate(Parsed token,
+                                                         Map<String, Integer> versions,
+                                                         Map<String, RefreshTokenRepository.RefreshTokenHashState> refreshStates,
+                                                         LocalDateTime now) {
+        if (token.claims() == null) {
+            if (token.expiredClaims() != null) {
+                return describe(token.expiredClaims(), false).reason("expired").build();
+            }
+            return TokenIntrospectionResponseDTO.Result.builder().active(false).reason("invalid").build();
+        }
+
+        Claims claims = token.claims();
+        String subject = claims.getSubject();
+        if (subject == null || JwtUtil.tokenVersion(claims) < versions.getOrDefault(subject, 0)) {
+            return describe(claims, false).reason("revoked").build();
+        }
+
+        if (token.refreshHash() != null) {
+            RefreshTokenRepository.RefreshTokenHashState state = refreshStates.get(token.refreshHash());
+            if (state == null || state.getRevoked()) {
+                return describe(claims, false).reason("revoked").build();
+            }
+            if (!state.getExpiresAt().isAfter(now)) {
+                return describe(claims, false).reason("expired").build();
+            }
+        }
+
+        return describe(claims, true).build();
+    }
+
+    private static TokenIntrospectionResponseDTO.Result.ResultBuilder describe(Claims claims, boolean active) {
+        Number userId = claims.get(JwtUtil.USER_ID_CLAIM, Number.class);
+        return TokenIntrospectionResponseDTO.Result.builder()
+                .active(active)
+                .tokenType(JwtUtil.tokenUse(claims))
+                .subject(claims.getSubject())
+                .userId(userId != null ? userId.longValue() : null)
+                .expiresAt(claims.getExpiration() != null ? claims.getExpiration().toInstant() : null);
+    }
+
+    // claims is set when the signature is valid, expiredClaims when it is valid but the token has expired
+    private record Parsed(Claims claims, String refreshHash, Claims expiredClaims) {
+    }
+}
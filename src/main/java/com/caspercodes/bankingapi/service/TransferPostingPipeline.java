@@ -0,0 +1,316 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.TransferResponseDTO;
+import com.caspercodes.bankingapi.exception.TransferOutcomeUnknownException;
+import com.caspercodes.bankingapi.exception.TransferUnavailableException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+  Group commit for transfers. Requests queue up and a single drainer collects them for at most max-wait-ms
+  or max-batch items, then posts the whole group in one transaction, one commit and fsync for all of them.
+  Each caller gets its own outcome, a rejected transfer does not affect the rest of its group.
+  If the group fails before its commit, its transfers are retried one per transaction so that
+  one bad row cannot take the others down with it. If the commit itself fails the group may or may not
+  be written, so nothing is retried and every caller gets TransferOutcomeUnknownException.
+  A caller waits at most await-timeout-ms for the drainer to pick its transfer up. If it is still
+  queued by then it is withdrawn and the caller gets a 503, so it was never posted and retrying is safe.
+  Once picked up, the wait is bounded by the transaction timeout instead. If the drainer dies it stops
+  taking transfers and fails everything queued, callers then fall back to posting themselves
+ */
+@Component
+@Slf4j
+public class TransferPostingPipeline implements DisposableBean {
+
+    private final LedgerPoster ledgerPoster;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final BlockingQueue<Pending> queue;
+
+    private final DistributionSummary batchSizes;
+
+    private final Counter fallbacks;
+
+    private final boolean enabled;
+
+    private final int maxBatch;
+
+    private final long maxWaitNanos;
+
+    private final long awaitTimeoutMillis;
+
+    private volatile boolean running;
+
+    private Thread drainer;
+
+    // Claimed exactly once, by the drainer to post it or by a timed out caller to withdraw it
+    private record Pending(LedgerPoster.Posting posting, CompletableFuture<TransferResponseDTO> result,
+                           AtomicBoolean claimed) {
+
+        boolean claim() {
+            return claimed.compareAndSet(false, true);
+        }
+    }
+
+    // Failure inside the transaction callback, before the commit, so nothing was written
+    private static final class NotCommittedException extends RuntimeException {
+
+        NotCommittedException(RuntimeException cause) {
+            super(cause);
+        }
+
+        @Override
+        public synchronized RuntimeException getCause() {
+            return (RuntimeException) super.getCause();
+        }
+    }
+
+    public TransferPostingPipeline(LedgerPoster ledgerPoster,
+                                   TransactionTemplate transactionTemplate,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${ledger.group-commit.enabled:true}") boolean enabled,
+                                   @Value("${ledger.group-commit.max-batch:200}") int maxBatch,
+                                   @Value("${ledger.group-commit.max-wait-ms:5}") long maxWaitMs,
+                                   @Value("${ledger.group-commit.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${ledger.group-commit.await-timeout-ms:5000}") long awaitTimeoutMs,
+                                   @Value("${ledger.group-commit.transaction-timeout-seconds:10}") int transactionTimeoutSeconds) {
+        this.ledgerPoster = ledgerPoster;
+        // Own copy, so the timeout applies to group commits only
+        this.transactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager(), transactionTemplate);
+        this.transactionTemplate.setTimeout(transactionTimeoutSeconds);
+        this.enabled = enabled;
+        this.maxBatch = maxBatch;
+        this.maxWaitNanos = TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        this.awaitTimeoutMillis = awaitTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.batchSizes = DistributionSummary.builder("ledger.group-commit.batch.size")
+                .description("Transfers posted per group commit")
+                .register(meterRegistry);
+        this.fallbacks = Counter.builder("ledger.group-commit.fallback")
+                .description("Group commits that failed and were retried one transfer per transaction")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        drainer = Thread.ofPlatform().name("ledger-group-commit").daemon().start(this::drain);
+        log.info("Transfer group commit started, max batch: {}, max wait: {}ms",
+                maxBatch, TimeUnit.NANOSECONDS.toMillis(maxWaitNanos));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    // Posts the transfer with its group and rethrows its rejection.
+    // Empty when the pipeline is off or full, the caller then posts the transfer itself
+    public Optional<TransferResponseDTO> post(LedgerPoster.Posting posting) {
+        if (!running) {
+            return Optional.empty();
+        }
+        Pending pending = new Pending(posting, new CompletableFuture<>(), new AtomicBoolean());
+        if (!queue.offer(pending)) {
+            return Optional.empty();
+        }
+        return Optional.of(await(pending));
+    }
+
+    private TransferResponseDTO await(Pending pending) {
+        try {
+            try {
+                return pending.result().get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pending.claim()) {
+                    queue.remove(pending);
+                    log.warn("Transfer not picked up within {}ms, withdrawn", awaitTimeoutMillis);
+                    throw new TransferUnavailableException("Transfers are backed up, try again shortly");
+                }
+                // Already being posted, the transaction timeout bounds the rest of the wait
+                return pending.result().get();
+            }
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException("Transfer group commit failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TransferUnavailableException("Interrupted while waiting for the transfer");
+        }
+    }
+
+    private void drain() {
+        List<Pending> batch = new ArrayList<>(maxBatch);
+        try {
+            while (running || !queue.isEmpty()) {
+                try {
+                    Pending first = queue.poll(100, TimeUnit.MILLISECONDS);
+                    if (first == null || !first.claim()) {
+                        continue;
+                    }
+                    batch.add(first);
+                    collect(batch);
+                    commit(batch);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                } catch (RuntimeException e) {
+                    log.error("Transfer group commit failed unexpectedly", e);
+                    fail(batch, e);
+                }
+                batch.clear();
+            }
+        } catch (Error e) {
+            log.error("Transfer group commit drainer died, transfers fall back to posting alone", e);
+            fail(batch, e);
+            throw e;
+        } finally {
+            // Whatever ended the loop, stop taking transfers and release everyone still waiting
+            running = false;
+            fail(batch, new TransferUnavailableException("Transfer pipeline is shutting down, try again shortly"));
+            failRemaining();
+        }
+    }
+
+    // Waits up to the window for more transfers, stopping early once the batch is full.
+    // Transfers withdrawn by their caller are dropped
+    private void collect(List<Pending> batch) throws InterruptedException {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        List<Pending> drained = new ArrayList<>(maxBatch);
+        while (batch.size() < maxBatch) {
+            queue.drainTo(drained, maxBatch - batch.size());
+            for (Pending pending : drained) {
+                if (pending.claim()) {
+                    batch.add(pending);
+                }
+            }
+            drained.clear();
+
+            long remaining = deadline - System.nanoTime();
+            if (batch.size() >= maxBatch || remaining <= 0) {
+                return;
+            }
+            Pending next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                return;
+            }
+            if (next.claim()) {
+                batch.add(next);
+            }
+        }
+    }
+
+    private void commit(List<Pending> batch) {
+        List<LedgerPoster.Posting> postings = batch.stream().map(Pending::posting).toList();
+        List<LedgerPoster.Outcome> outcomes;
+        try {
+            outcomes = execute(postings);
+        } catch (NotCommittedException e) {
+            log.warn("Group commit of {} transfer(s) failed, posting them one by one: {}",
+                    batch.size(), e.getCause().getMessage());
+            fallbacks.increment();
+            batch.forEach(this::commitAlone);
+            return;
+        } catch (RuntimeException e) {
+            log.error("Commit of {} transfer(s) failed with an unknown outcome, not retrying them", batch.size(), e);
+            fail(batch, outcomeUnknown(e));
+            return;
+        }
+
+        batchSizes.record(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            complete(batch.get(i), outcomes.get(i));
+        }
+    }
+
+    private void commitAlone(Pending pending) {
+        try {
+            complete(pending, execute(List.of(pending.posting())).getFirst());
+        } catch (NotCommittedException e) {
+            pending.result().completeExceptionally(e.getCause());
+        } catch (RuntimeException e) {
+            log.error("Commit of a transfer failed with an unknown outcome", e);
+            pending.result().completeExceptionally(outcomeUnknown(e));
+        }
+    }
+
+    // Flushes inside the callback, so constraint and lock errors surface before the commit and are told
+    // apart from failures of the commit itself, which may have written the group anyway
+    private List<LedgerPoster.Outcome> execute(List<LedgerPoster.Posting> postings) {
+        return transactionTemplate.execute(status -> {
+            try {
+                List<LedgerPoster.Outcome> outcomes = ledgerPoster.post(postings);
+                status.flush();
+                return outcomes;
+            } catch (RuntimeException e) {
+                throw new NotCommittedException(e);
+            }
+        });
+    }
+
+    private static TransferOutcomeUnknownException outcomeUnknown(RuntimeException cause) {
+        return new TransferOutcomeUnknownException(
+                "The transfer may or may not have been posted, check the account's transactions before retrying", cause);
+    }
+
+    private static void complete(Pending pending, LedgerPoster.Outcome outcome) {
+        if (outcome.error() != null) {
+            pending.result().completeExceptionally(outcome.error());
+        } else {
+            pending.result().complete(outcome.result());
+        }
+    }
+
+    private static void fail(List<Pending> batch, Throwable error) {
+        batch.forEach(pending -> pending.result().completeExceptionally(error));
+    }
+
+    // Queued transfers were never posted, so they are safe to retry
+    private void failRemaining() {
+        Pending pending;
+        while ((pending = queue.poll()) != null) {
+            if (pending.claim()) {
+                pending.result().completeExceptionally(
+                        new TransferUnavailableException("Transfer pipeline is shutting down, try again shortly"));
+            }
+        }
+    }
+
+    // Stops taking transfers and lets the drainer post what is already queued
+    @Override
+    public void destroy() throws InterruptedException {
+        if (drainer == null) {
+            return;
+        }
+        running = false;
+        drainer.join(TimeUnit.SECONDS.toMillis(30));
+        if (drainer.isAlive()) {
+            drainer.interrupt();
+        }
+        failRemaining();
+    }
+}
@@ -0,0 +1,138 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.DepositRequestDTO;
+import com.caspercodes.bankingapi.dto.TransferRequestDTO;
+import com.caspercodes.bankingapi.dto.TransferResponseDTO;
+import com.caspercodes.bankingapi.exception.AccountNotFoundException;
+import com.caspercodes.bankingapi.exception.TransferRejectedException;
+import com.caspercodes.bankingapi.repository.AccountRepository;
+import com.caspercodes.bankingapi.util.Money;
+import com.caspercodes.bankingapi.util.SqlStates;
+import com.caspercodes.bankingapi.util.StripedLock;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+/*
+  Moves money between two accounts as one double entry posting. Deposits are postings from the
+  currency's clearing account, made by an admin on behalf of the bank.
+  Normally transfers go through the group commit pipeline. When it is disabled or full, transfers touching
+  the same accounts queue on an in-process striped lock first, so on this node they do not pile up as waiters
+  on the same database rows. Across nodes the row locks, always taken in account id order, serialize them
+  without deadlocks. Transfers on unrelated accounts run in parallel
+ */
+@Service
+@Slf4j
+public class TransferService {
+
+    private final AccountRepository accountRepository;
+
+    private final AccountService accountService;
+
+    private final LedgerPoster ledgerPoster;
+
+    private final TransferPostingPipeline postingPipeline;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private final StripedLock accountLocks;
+
+    public TransferService(AccountRepository accountRepository,
+                           AccountService accountService,
+                           LedgerPoster ledgerPoster,
+                           TransferPostingPipeline postingPipeline,
+                           TransactionTemplate transactionTemplate,
+                           @Value("${ledger.lock-stripes:1024}") int lockStripes) {
+        this.accountRepository = accountRepository;
+        this.accountService = accountService;
+        this.ledgerPoster = ledgerPoster;
+        this.postingPipeline = postingPipeline;
+        this.transactionTemplate = transactionTemplate;
+        this.accountLocks = new StripedLock(lockStripes);
+    }
+
+    public TransferResponseDTO transfer(String ownerEmail, TransferRequestDTO request) {
+        if (request.getFromAccountNumber().equals(request.getToAccountNumber())) {
+            throw new TransferRejectedException("Source and destination accounts must differ");
+        }
+
+        AccountRepository.AccountRef from = accountRef(request.getFromAccountNumber());
+        AccountRepository.AccountRef to = accountRef(request.getToAccountNumber());
+        LedgerPoster.Posting posting = new LedgerPoster.Posting(
+                accountService.ownerId(ownerEmail),
+                from.getId(),
+                to.getId(),
+                minorUnits(request.getAmount(), from.getCurrency()),
+                from.getCurrency(),
+                request.getDescription());
+        return post(posting);
+    }
+
+    public TransferResponseDTO deposit(String adminEmail, String accountNumber, DepositRequestDTO request) {
+        AccountRepository.AccountRef to = accountRef(accountNumber);
+        AccountRepository.AccountRef clearing = clearingAccount(to.getCurrency());
+        if (clearing.getId().equals(to.getId())) {
+            throw new TransferRejectedException("Deposits must go to a customer account");
+        }
+
+        TransferResponseDTO result = post(new LedgerPoster.Posting(
+                LedgerPoster.SYSTEM_OWNER,
+                clearing.getId(),
+                to.getId(),
+                minorUnits(request.getAmount(), to.getCurrency()),
+                to.getCurrency(),
+                request.getDescription()));
+
+        log.info("Deposit of {} {} into {} by: {}", result.getAmount(), result.getCurrency(), accountNumber, adminEmail);
+        return result;
+    }
+
+    private TransferResponseDTO post(LedgerPoster.Posting posting) {
+        Optional<TransferResponseDTO> grouped = postingPipeline.post(posting);
+        if (grouped.isPresent()) {
+            return grouped.get();
+        }
+
+        // Held until the transaction has committed, so the next transfer on these accounts sees its result
+        try (StripedLock.Held ignored = accountLocks.lock(posting.fromId(), posting.toId())) {
+            return transactionTemplate.execute(status -> ledgerPoster.post(List.of(posting)).getFirst()).getOrThrow();
+        }
+    }
+
+    // Opened on the first deposit in a currency, a concurrent opener losing on the unique account number reads the winner's
+    private AccountRepository.AccountRef clearingAccount(String currency) {
+        String accountNumber = AccountService.clearingAccountNumber(currency);
+        Optional<AccountRepository.AccountRef> existing = accountRepository.findRefByAccountNumber(accountNumber);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        try {
+            accountService.openClearingAccount(currency);
+        } catch (DataIntegrityViolationException e) {
+            if (!SqlStates.isUniqueViolation(e)) {
+                throw e;
+            }
+        }
+        return accountRef(accountNumber);
+    }
+
+    private AccountRepository.AccountRef accountRef(String accountNumber) {
+        return accountRepository.findRefByAccountNumber(accountNumber)
+                .orElseThrow(() -> new AccountNotFoundException("Account not found: " + accountNumber));
+    }
+
+    private static long minorUnits(BigDecimal amount, String currency) {
+        try {
+            return Money.toMinorUnits(amount, currency);
+        } catch (ArithmeticException e) {
+            throw new TransferRejectedException("Amount is not a valid " + currency + " amount");
+        }
+    }
+}
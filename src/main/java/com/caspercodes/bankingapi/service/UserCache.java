@@ -0,0 +1,163 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.repository.UserRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Optional;
+
+/*
+  Read-through user lookups by email: an in-process near cache in front of Redis in front of Postgres.
+  The password hash only ever lives in the near cache, Redis entries are written without it,
+  so password checks read the database on a near cache miss. Entries are evicted on every save, see UserCacheInvalidator
+ */
+@Service
+@Slf4j
+public class UserCache {
+
+    private static final String KEY_PREFIX = "user:";
+
+    private final UserRepository userRepository;
+
+    private final RedisTemplate<String, String> otpRedisTemplate;
+
+    private final ObjectMapper objectMapper;
+
+    private final Cache<String, Snapshot> near;
+
+    private final Duration redisTtl;
+
+    public UserCache(UserRepository userRepository,
+                     RedisTemplate<String, String> otpRedisTemplate,
+                     ObjectMapper objectMapper,
+                     @Value("${user-cache.near.max-size:10000}") long nearMaxSize,
+                     @Value("${user-cache.near.ttl-seconds:30}") long nearTtlSeconds,
+                     @Value("${user-cache.redis.ttl-seconds:600}") long redisTtlSeconds) {
+        this.userRepository = userRepository;
+        this.otpRedisTemplate = otpRedisTemplate;
+        this.objectMapper = objectMapper;
+        this.near = Caffeine.newBuilder()
+                .maximumSize(nearMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(nearTtlSeconds))
+                .build();
+        this.redisTtl = Duration.ofSeconds(redisTtlSeconds);
+    }
+
+    // Snapshot without a guaranteed password hash, for callers that only need the profile
+    public Optional<Snapshot> find(String email) {
+        Snapshot cached = fromNear(email);
+        if (cached == null) {
+            cached = fromRedis(email);
+        }
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        return load(email);
+    }
+
+    // Snapshot including the password hash, never served from Redis
+    public Optional<Snapshot> findWithPassword(String email) {
+        Snapshot cached = fromNear(email);
+        if (cached != null && cached.password() != null) {
+            return Optional.of(cached);
+        }
+        return load(email);
+    }
+
+    public boolean exists(String email) {
+        return find(email).isPresent();
+    }
+
+    public void evict(String email) {
+        String key = normalize(email);
+        near.invalidate(key);
+        try {
+            otpRedisTemplate.delete(KEY_PREFIX + key);
+        } catch (DataAccessException e) {
+            log.warn("Failed to evict cached user {}: {}", key, e.getMessage());
+        }
+    }
+
+    private Optional<Snapshot> load(String email) {
+        Optional<Snapshot> loaded = userRepository.findByEmail(email).map(Snapshot::of);
+        loaded.ifPresent(this::store);
+        return loaded;
+    }
+
+    private void store(Snapshot snapshot) {
+        String key = normalize(snapshot.email());
+        near.put(key, snapshot);
+        try {
+            otpRedisTemplate.opsForValue().set(KEY_PREFIX + key,
+                    objectMapper.writeValueAsString(snapshot.withoutPassword()), redisTtl);
+        } catch (JsonProcessingException | DataAccessException e) {
+            log.debug("Failed to cache user {} in Redis: {}", key, e.getMessage());
+        }
+    }
+
+    // Keys are case insensitive but lookups are not, a hit for another spelling of the email is a miss
+    private Snapshot fromNear(String email) {
+        Snapshot cached = near.getIfPresent(normalize(email));
+        return cached != null && cached.email().equals(email) ? cached : null;
+    }
+
+    private Snapshot fromRedis(String email) {
+        try {
+            String json = otpRedisTemplate.opsForValue().get(KEY_PREFIX + normalize(email));
+            if (json == null) {
+                return null;
+            }
+            Snapshot cached = objectMapper.readValue(json, Snapshot.class);
+            return cached.email().equals(email) ? cached : null;
+        } catch (JsonProcessingException | DataAccessException e) {
+            log.debug("Cached user unavailable for {}: {}", email, e.getMessage());
+            return null;
+        }
+    }
+
+    static String normalize(String email) {
+        return email.trim().toLowerCase(Locale.ROOT);
+    }
+
+    // Immutable copy of the fields read on the login path
+    public record Snapshot(Long id, String firstName, String lastName, String email, String password,
+                           String phoneNumber, Boolean isActive, Boolean isVerified, Integer tokenVersion,
+                           User.Role role) {
+
+        static Snapshot of(User user) {
+            return new Snapshot(user.getId(), user.getFirstName(), user.getLastName(), user.getEmail(),
+                    user.getPassword(), user.getPhoneNumber(), user.getIsActive(), user.getIsVerified(),
+                    user.getTokenVersion(), user.getRole());
+        }
+
+        Snapshot withoutPassword() {
+            return new Snapshot(id, firstName, lastName, email, null, phoneNumber, isActive, isVerified, tokenVersion, role);
+        }
+
+        // Detached user for token generation and authentication, never pass it to save
+        public User toUser() {
+            return User.builder()
+                    .id(id)
+                    .firstName(firstName)
+                    .lastName(lastName)
+                    .email(email)
+                    .password(password)
+                    .phoneNumber(phoneNumber)
+                    .isActive(isActive)
+                    .isVerified(isVerified)
+                    .tokenVersion(tokenVersion)
+                    .role(role)
+                    .build();
+        }
+    }
+}
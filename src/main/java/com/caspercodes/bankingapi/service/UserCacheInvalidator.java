@@ -0,0 +1,40 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.model.User;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/*
+  JPA listener on User, created through Spring so it can reach UserCache.
+  Evicts at flush and again after commit, so a lookup racing the transaction cannot leave the old row cached.
+  Bulk JPQL updates bypass listeners and evict explicitly
+ */
+@Component
+@RequiredArgsConstructor
+public class UserCacheInvalidator {
+
+    private final UserCache userCache;
+
+    // Nothing is cached for an email before its user exists, so inserts need no eviction
+    @PostUpdate
+    @PostRemove
+    public void onChange(User user) {
+        evictNowAndAfterCommit(user.getEmail());
+    }
+
+    public void evictNowAndAfterCommit(String email) {
+        userCache.evict(email);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    userCache.evict(email);
+                }
+            });
+        }
+    }
+}
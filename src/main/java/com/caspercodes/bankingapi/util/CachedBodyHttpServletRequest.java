@@ -0,0 +1,108 @@
+package com.caspercodes.bankingapi.util;
+
+import jakarta.servlet.ReadListener;
+import jakarta.servlet.ServletInputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import org.springframework.util.StreamUtils;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.SequenceInputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/*
+  Reads the request body once so filters can inspect it
+  and the controller can still bind it afterwards.
+  With a byte limit only that much is held in memory, a longer body is streamed through to the controller
+ */
+public class CachedBodyHttpServletRequest extends HttpServletRequestWrapper {
+
+    private final byte[] body;
+
+    // The unread part of the original stream when the body was longer than the limit
+    private final InputStream rest;
+
+    private ServletInputStream partial;
+
+    public CachedBodyHttpServletRequest(HttpServletRequest request) throws IOException {
+        super(request);
+        this.body = StreamUtils.copyToByteArray(request.getInputStream());
+        this.rest = null;
+    }
+
+    // Reads at most maxBytes + 1 bytes, whatever the Content-Length says, isComplete() tells if that was all of it
+    public CachedBodyHttpServletRequest(HttpServletRequest request, int maxBytes) throws IOException {
+        super(request);
+        InputStream in = request.getInputStream();
+        this.body = in.readNBytes(maxBytes + 1);
+        this.rest = body.length > maxBytes ? in : null;
+    }
+
+    public boolean isComplete() {
+        return rest == null;
+    }
+
+    // The whole body, or only its first maxBytes + 1 bytes when it is not complete
+    public byte[] getBody() {
+        return body;
+    }
+
+    @Override
+    public ServletInputStream getInputStream() {
+        if (rest == null) {
+            return stream(new ByteArrayInputStream(body));
+        }
+        // The rest of the original stream can only be read once
+        if (partial == null) {
+            partial = stream(new SequenceInputStream(new ByteArrayInputStream(body), rest));
+        }
+        return partial;
+    }
+
+    private static ServletInputStream stream(InputStream stream) {
+        return new ServletInputStream() {
+            private boolean finished;
+
+            @Override
+            public boolean isFinished() {
+                return finished;
+            }
+
+            @Override
+            public boolean isReady() {
+                return true;
+            }
+
+            @Override
+            public void setReadListener(ReadListener readListener) {
+                throw new UnsupportedOperationException("Async reads are not supported on a cached body");
+            }
+
+            @Override
+            public int read() throws IOException {
+                int read = stream.read();
+                finished = read == -1;
+                return read;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                int read = stream.read(b, off, len);
+                finished = read == -1;
+                return read;
+            }
+        };
+    }
+
+    @Override
+    public BufferedReader getReader() {
+        String encoding = getCharacterEncoding();
+        Charset charset = encoding != null ? Charset.forName(encoding) : StandardCharsets.UTF_8;
+        return new BufferedReader(new InputStreamReader(getInputStream(), charset));
+    }
+}
@@ -1,31 +1,171 @@
 package com.caspercodes.bankingapi.util;
 
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.security.CustomUserDetails;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtBuilder;
+import io.jsonwebtoken.JwtParser;
 import io.jsonwebtoken.Jwts;
+import io.jsonwebtoken.LocatorAdapter;
+import io.jsonwebtoken.ProtectedHeader;
 import io.jsonwebtoken.io.Decoders;
+import io.jsonwebtoken.security.Jwks;
 import io.jsonwebtoken.security.Keys;
+import io.jsonwebtoken.security.SignatureAlgorithm;
+import io.jsonwebtoken.security.SignatureException;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.core.io.Resource;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
 
 import javax.crypto.SecretKey;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.PrivateKey;
+import java.security.PublicKey;
+import java.security.spec.PKCS8EncodedKeySpec;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 import java.util.function.Function;
 
 @Component
+@Slf4j
 public class JwtUtil {
 
-    @Value("${jwt.secret}")
+    // Claim carrying the user's token version, tokens without it are version 0
+    public static final String TOKEN_VERSION_CLAIM = "ver";
+
+    // Claim carrying the user's database id
+    public static final String USER_ID_CLAIM = "uid";
+
+    // Claim carrying the user's role, tokens issued without it are USER tokens
+    public static final String ROLE_CLAIM = "role";
+
+    // Claim telling access and refresh tokens apart, tokens issued without it are treated as access tokens
+    public static final String TOKEN_USE_CLAIM = "token_use";
+
+    public static final String ACCESS_TOKEN = "access";
+
+    public static final String REFRESH_TOKEN = "refresh";
+
+    public enum Algorithm {
+        // Shared secret, only this service can verify
+        HS256,
+        // Key pairs, downstream services verify with the public keys from /.well-known/jwks.json
+        ES256,
+        // Ed25519
+        EdDSA
+    }
+
+    @Value("${jwt.algorithm:HS256}")
+    private Algorithm algorithm;
+
+    // Only used with HS256
+    @Value("${jwt.secret:}")
     private String secret;
 
+    // PEM files (PKCS#8 private key, X.509 public key) for ES256 and EdDSA, e.g. file:/etc/banking/jwt-private.pem
+    @Value("${jwt.private-key-location:}")
+    private String privateKeyLocation;
+
+    @Value("${jwt.public-key-location:}")
+    private String publicKeyLocation;
+
+    // Retired public keys still accepted and published during rotation, as "kid:location,kid:location"
+    @Value("${jwt.previous-public-keys:}")
+    private String previousPublicKeys;
+
+    // Key id written to the kid header of every token we sign
+    @Value("${jwt.key-id:primary}")
+    private String keyId;
+
+    // Retired secrets still accepted for verification during rotation, as "kid:base64Secret,kid:base64Secret"
+    @Value("${jwt.previous-secrets:}")
+    private String previousSecrets;
+
     @Value("${jwt.expiration}")
     private Long expiration;
 
     @Value("${jwt.refresh-expiration}")
     private Long refreshExpiration;
 
+    private Key signingKey;
+
+    // Null for HS256, the algorithm is then picked from the secret's length as before
+    private SignatureAlgorithm signatureAlgorithm;
+
+    private Key currentVerificationKey;
+
+    private Map<String, Key> verificationKeys;
+
+    private Map<String, Object> jwks;
+
+    private JwtParser parser;
+
+    /*
+      Keys and the parser are immutable and thread safe, so they are built once here
+      instead of decoding the secret and building a parser on every call
+     */
+    @PostConstruct
+    void init() {
+        Map<String, Key> keys = new HashMap<>();
+        Map<String, PublicKey> publicKeys = new LinkedHashMap<>();
+
+        if (algorithm == Algorithm.HS256) {
+            if (!StringUtils.hasText(secret)) {
+                throw new IllegalStateException("jwt.secret is required when jwt.algorithm is HS256");
+            }
+            signingKey = decodeKey(secret);
+            currentVerificationKey = signingKey;
+        } else {
+            signatureAlgorithm = algorithm == Algorithm.ES256 ? Jwts.SIG.ES256 : Jwts.SIG.EdDSA;
+            KeyPair keyPair = loadKeyPair();
+            signingKey = keyPair.getPrivate();
+            currentVerificationKey = keyPair.getPublic();
+            publicKeys.put(keyId, keyPair.getPublic());
+        }
+        keys.put(keyId, currentVerificationKey);
+
+        for (String[] entry : keyIdEntries(previousSecrets, "jwt.previous-secrets")) {
+            keys.putIfAbsent(entry[0], decodeKey(entry[1]));
+        }
+        for (String[] entry : keyIdEntries(previousPublicKeys, "jwt.previous-public-keys")) {
+            PublicKey publicKey = readPublicKey(entry[1]);
+            keys.putIfAbsent(entry[0], publicKey);
+            publicKeys.putIfAbsent(entry[0], publicKey);
+        }
+        verificationKeys = Map.copyOf(keys);
+        jwks = buildJwks(publicKeys);
+
+        parser = Jwts.parser()
+                .keyLocator(new KeyIdLocator())
+                .build();
+
+        log.info("JWT {} signing key '{}' loaded, {} key(s) accepted for verification, {} published",
+                algorithm, keyId, verificationKeys.size(), publicKeys.size());
+    }
+
+    // Public keys as a JWK Set, empty for HS256 since a shared secret is never published
+    public Map<String, Object> getJwks() {
+        return jwks;
+    }
+
     // To extract username from the token
     public String extractUsername(String token) {
         return extractClaim(token, Claims::getSubject);
@@ -42,52 +182,186 @@ public class JwtUtil {
         return claimsResolver.apply(claims);
     }
 
-    // Get all claims from the token
+    // Get all claims from the token, verifying the signature once. Callers needing several claims should keep the result
     public Claims extractAllClaims(String token) {
-        return Jwts.parser()
-                .verifyWith(getSigningKey())
-                .build()
-                .parseSignedClaims(token)
-                .getPayload();
+        return parser.parseSignedClaims(token).getPayload();
+    }
+
+    // Get the token version claim from already parsed claims
+    public static int tokenVersion(Claims claims) {
+        Integer version = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        return version != null ? version : 0;
+    }
+
+    // Get the role claim from already parsed claims, unknown roles get the least privilege
+    public static User.Role role(Claims claims) {
+        String role = claims.get(ROLE_CLAIM, String.class);
+        if (role == null) {
+            return User.Role.USER;
+        }
+        try {
+            return User.Role.valueOf(role);
+        } catch (IllegalArgumentException e) {
+            return User.Role.USER;
+        }
+    }
+
+    // Get the token use claim from already parsed claims
+    public static String tokenUse(Claims claims) {
+        String tokenUse = claims.get(TOKEN_USE_CLAIM, String.class);
+        return tokenUse != null ? tokenUse : ACCESS_TOKEN;
     }
 
     // Check if token has expired
-    private Boolean isTokenExpired(String token) {
-        return extractExpiration(token).before(new Date());
+    private boolean isTokenExpired(Claims claims) {
+        return claims.getExpiration().before(new Date());
     }
 
     // Generates access token
     public String generateToken(UserDetails userDetails) {
-        Map<String, Object> claims = new HashMap<>();
-        return createToken(claims, userDetails.getUsername(), expiration);
+        return createToken(userClaims(userDetails, ACCESS_TOKEN), userDetails.getUsername(), expiration);
     }
 
-    //Generates refresh token
+    //Generates refresh token. The random id keeps tokens issued in the same second apart, they are stored by hash
     public String generateRefreshToken(UserDetails userDetails) {
-        Map<String, Object> claims = new HashMap<>();
+        Map<String, Object> claims = userClaims(userDetails, REFRESH_TOKEN);
+        claims.put(Claims.ID, UUID.randomUUID().toString());
         return createToken(claims, userDetails.getUsername(), refreshExpiration);
     }
 
+    // User id and token version, so a token can be checked against a bumped version without loading the user
+    private static Map<String, Object> userClaims(UserDetails userDetails, String tokenUse) {
+        Map<String, Object> claims = new HashMap<>();
+        claims.put(TOKEN_USE_CLAIM, tokenUse);
+        if (userDetails instanceof CustomUserDetails customUserDetails) {
+            User user = customUserDetails.getUser();
+            claims.put(USER_ID_CLAIM, user.getId());
+            claims.put(TOKEN_VERSION_CLAIM, user.getTokenVersion());
+            claims.put(ROLE_CLAIM, (user.getRole() != null ? user.getRole() : User.Role.USER).name());
+        }
+        return claims;
+    }
+
     // create tokens with claims and expiration
     private String createToken(Map<String, Object> claims, String subject, Long expirationTime) {
-        return Jwts.builder()
+        long now = System.currentTimeMillis();
+        JwtBuilder builder = Jwts.builder()
+                .header().keyId(keyId).and()
                 .claims(claims)
                 .subject(subject)
-                .issuedAt(new Date(System.currentTimeMillis()))
-                .expiration(new Date(System.currentTimeMillis() + expirationTime))
-                .signWith(getSigningKey())
-                .compact();
+                .issuedAt(new Date(now))
+                .expiration(new Date(now + expirationTime));
+        if (signatureAlgorithm != null) {
+            builder.signWith((PrivateKey) signingKey, signatureAlgorithm);
+        } else {
+            builder.signWith(signingKey);
+        }
+        return builder.compact();
     }
 
     // Validate token
     public Boolean validateToken(String token, UserDetails userDetails) {
-        final String username = extractUsername(token);
-        return (username.equals(userDetails.getUsername()) && !isTokenExpired(token));
+        return validateToken(extractAllClaims(token), userDetails);
     }
 
-    // Get signing key from the secret
-    private SecretKey getSigningKey() {
-        byte[] keyBytes = Decoders.BASE64.decode(secret);
+    // Validate already parsed claims
+    public Boolean validateToken(Claims claims, UserDetails userDetails) {
+        return userDetails.getUsername().equals(claims.getSubject()) && !isTokenExpired(claims);
+    }
+
+    // Get signing key from a Base64 secret
+    private static SecretKey decodeKey(String base64Secret) {
+        byte[] keyBytes = Decoders.BASE64.decode(base64Secret);
         return Keys.hmacShaKeyFor(keyBytes);
     }
+
+    // Parses "kid:value,kid:value" rotation properties
+    private static List<String[]> keyIdEntries(String property, String name) {
+        List<String[]> entries = new ArrayList<>();
+        if (!StringUtils.hasText(property)) {
+            return entries;
+        }
+        for (String entry : property.split(",")) {
+            String[] parts = entry.trim().split(":", 2);
+            if (parts.length != 2 || !StringUtils.hasText(parts[0])) {
+                throw new IllegalStateException("Invalid " + name + " entry, expected kid:value");
+            }
+            entries.add(new String[]{parts[0].trim(), parts[1].trim()});
+        }
+        return entries;
+    }
+
+    /*
+      Without configured PEM files a key pair is generated at startup. Tokens then do not survive
+      a restart and instances cannot verify each other's tokens, so this is only for local development
+     */
+    private KeyPair loadKeyPair() {
+        if (!StringUtils.hasText(privateKeyLocation) || !StringUtils.hasText(publicKeyLocation)) {
+            log.warn("jwt.private-key-location or jwt.public-key-location not set, generating an ephemeral {} key pair. " +
+                    "Do not use this outside local development", algorithm);
+            return algorithm == Algorithm.ES256
+                    ? Jwts.SIG.ES256.keyPair().build()
+                    : Jwks.CRV.Ed25519.keyPair().build();
+        }
+        try {
+            KeyFactory keyFactory = keyFactory();
+            PrivateKey privateKey = keyFactory.generatePrivate(new PKCS8EncodedKeySpec(readPem(privateKeyLocation)));
+            return new KeyPair(readPublicKey(publicKeyLocation), privateKey);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid " + algorithm + " private key at " + privateKeyLocation, e);
+        }
+    }
+
+    private PublicKey readPublicKey(String location) {
+        try {
+            return keyFactory().generatePublic(new X509EncodedKeySpec(readPem(location)));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Invalid " + algorithm + " public key at " + location, e);
+        }
+    }
+
+    private KeyFactory keyFactory() throws GeneralSecurityException {
+        if (algorithm == Algorithm.HS256) {
+            throw new IllegalStateException("Public keys need jwt.algorithm ES256 or EdDSA");
+        }
+        return KeyFactory.getInstance(algorithm == Algorithm.ES256 ? "EC" : "Ed25519");
+    }
+
+    private static byte[] readPem(String location) {
+        Resource resource = new DefaultResourceLoader().getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            String pem = new String(in.readAllBytes(), StandardCharsets.US_ASCII)
+                    .replaceAll("-----(BEGIN|END) [A-Z ]+-----", "");
+            return Base64.getMimeDecoder().decode(pem);
+        } catch (IOException e) {
+            throw new IllegalStateException("Unable to read JWT key from " + location, e);
+        }
+    }
+
+    private Map<String, Object> buildJwks(Map<String, PublicKey> publicKeys) {
+        List<Map<String, Object>> keys = new ArrayList<>();
+        publicKeys.forEach((kid, publicKey) -> keys.add(new LinkedHashMap<>(Jwks.builder()
+                .key(publicKey)
+                .id(kid)
+                .algorithm(algorithm.name())
+                .publicKeyUse("sig")
+                .build())));
+        return Map.of("keys", List.copyOf(keys));
+    }
+
+    // Picks the verification key from the kid header, tokens issued before kid headers use the current key
+    private class KeyIdLocator extends LocatorAdapter<Key> {
+        @Override
+        protected Key locate(ProtectedHeader header) {
+            String kid = header.getKeyId();
+            if (kid == null) {
+                return currentVerificationKey;
+            }
+            Key key = verificationKeys.get(kid);
+            if (key == null) {
+                throw new SignatureException("Unknown signing key id: " + kid);
+            }
+            return key;
+        }
+    }
 }
@@ -0,0 +1,130 @@
+package com.caspercodes.bankingapi.util;
+
+import java.util.Arrays;
+
+/*
+  Open addressing hash map from long to long without boxing. Linear probing over parallel arrays,
+  so get and put allocate nothing once the table is big enough, and clear keeps the arrays for reuse.
+  Not thread safe, no removal of single keys
+ */
+public final class LongLongHashMap {
+
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private long[] keys;
+
+    private long[] values;
+
+    private boolean[] used;
+
+    private int mask;
+
+    private int size;
+
+    private int resizeAt;
+
+    public LongLongHashMap(int expectedSize) {
+        allocate(tableSize(expectedSize));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return used[slot(key)];
+    }
+
+    // Value for the key, or missingValue when absent
+    public long get(long key, long missingValue) {
+        int slot = slot(key);
+        return used[slot] ? values[slot] : missingValue;
+    }
+
+    // Returns the previous value, or missingValue when the key was absent
+    public long put(long key, long value, long missingValue) {
+        int slot = slot(key);
+        if (used[slot]) {
+            long previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+        used[slot] = true;
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return missingValue;
+    }
+
+    public void put(long key, long value) {
+        put(key, value, 0);
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(used, false);
+            size = 0;
+        }
+    }
+
+    public interface Consumer {
+        void accept(long key, long value);
+    }
+
+    public void forEach(Consumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) {
+                consumer.accept(keys[i], values[i]);
+            }
+        }
+    }
+
+    // Slot holding the key, or the free slot where it belongs
+    private int slot(long key) {
+        int slot = hash(key) & mask;
+        while (used[slot] && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash(int capacity) {
+        long[] oldKeys = keys;
+        long[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(capacity);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldUsed[i]) {
+                int slot = slot(oldKeys[i]);
+                used[slot] = true;
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new long[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeAt = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private static int tableSize(int expectedSize) {
+        int needed = (int) Math.ceil(Math.max(2, expectedSize) / LOAD_FACTOR);
+        return Integer.highestOneBit(needed - 1) << 1;
+    }
+
+    // Fibonacci hashing spreads sequential ids over the whole table
+    private static int hash(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32));
+    }
+}
@@ -0,0 +1,110 @@
+package com.caspercodes.bankingapi.util;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Map;
+import java.util.Objects;
+
+/*
+  Amount of money as a whole number of minor units of its currency, cents for EUR, yen for JPY.
+  Arithmetic is exact and fails with ArithmeticException on overflow instead of wrapping.
+  BigDecimal only appears at the API boundary, the ledger computes on the plain long.
+  Only the currencies in SUPPORTED can be held, migration 006 converts stored amounts with the same table
+ */
+public record Money(long minorUnits, String currency) implements Comparable<Money> {
+
+    // ISO 4217 code to minor unit digits. Keep in step with db/migrations/006-ledger-minor-units.sql, MoneyTest checks both
+    public static final Map<String, Integer> SUPPORTED = Map.ofEntries(
+            Map.entry("NGN", 2),
+            Map.entry("USD", 2),
+            Map.entry("EUR", 2),
+            Map.entry("GBP", 2),
+            Map.entry("CAD", 2),
+            Map.entry("CHF", 2),
+            Map.entry("GHS", 2),
+            Map.entry("KES", 2),
+            Map.entry("ZAR", 2),
+            Map.entry("XOF", 0),
+            Map.entry("XAF", 0),
+            Map.entry("JPY", 0),
+            Map.entry("KWD", 3));
+
+    public Money {
+        Objects.requireNonNull(currency, "currency");
+    }
+
+    public static Money ofMinor(long minorUnits, String currency) {
+        return new Money(minorUnits, currency);
+    }
+
+    public static Money zero(String currency) {
+        return new Money(0, currency);
+    }
+
+    // Fails with ArithmeticException if the amount has more decimals than the currency or does not fit in a long
+    public static Money of(BigDecimal amount, String currency) {
+        BigDecimal scaled = amount.setScale(fractionDigits(currency), RoundingMode.UNNECESSARY);
+        return new Money(scaled.unscaledValue().longValueExact(), currency);
+    }
+
+    public static boolean isSupported(String currency) {
+        return SUPPORTED.containsKey(currency);
+    }
+
+    // Minor unit digits of a supported currency, IllegalArgumentException for any other code
+    public static int fractionDigits(String currency) {
+        Integer digits = SUPPORTED.get(currency);
+        if (digits == null) {
+            throw new IllegalArgumentException("Unsupported currency: " + currency);
+        }
+        return digits;
+    }
+
+    // Same as of(...).minorUnits(), for callers that only keep the long
+    public static long toMinorUnits(BigDecimal amount, String currency) {
+        return of(amount, currency).minorUnits();
+    }
+
+    public static BigDecimal toDecimal(long minorUnits, String currency) {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    public Money plus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.addExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money minus(Money other) {
+        requireSameCurrency(other);
+        return new Money(Math.subtractExact(minorUnits, other.minorUnits), currency);
+    }
+
+    public Money negate() {
+        return new Money(Math.negateExact(minorUnits), currency);
+    }
+
+    public boolean isNegative() {
+        return minorUnits < 0;
+    }
+
+    public BigDecimal toDecimal() {
+        return toDecimal(minorUnits, currency);
+    }
+
+    @Override
+    public int compareTo(Money other) {
+        requireSameCurrency(other);
+        return Long.compare(minorUnits, other.minorUnits);
+    }
+
+    private void requireSameCurrency(Money other) {
+        if (!currency.equals(other.currency)) {
+            throw new IllegalArgumentException("Currency mismatch: " + currency + " and " + other.currency);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toDecimal().toPlainString() + " " + currency;
+    }
+}
@@ -0,0 +1,22 @@
+package com.caspercodes.bankingapi.util;
+
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.sql.SQLException;
+
+/*
+  Postgres SQLSTATE checks for exceptions Spring translates into one broad type.
+  DataIntegrityViolationException covers unique, foreign key, not null and check violations alike
+ */
+public final class SqlStates {
+
+    public static final String UNIQUE_VIOLATION = "23505";
+
+    private SqlStates() {
+    }
+
+    public static boolean isUniqueViolation(DataIntegrityViolationException e) {
+        return e.getMostSpecificCause() instanceof SQLException sqlException
+                && UNIQUE_VIOLATION.equals(sqlException.getSQLState());
+    }
+}
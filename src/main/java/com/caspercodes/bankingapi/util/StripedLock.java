@@ -0,0 +1,70 @@
+package com.caspercodes.bankingapi.util;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.ReentrantLock;
+
+/*
+  Fixed set of locks that keys hash onto, so per-key mutual exclusion costs bounded memory.
+  Keys on different stripes never contend. Several keys are always locked in stripe order,
+  so two threads locking overlapping key sets cannot deadlock
+ */
+public final class StripedLock {
+
+    private final ReentrantLock[] stripes;
+
+    private final int mask;
+
+    public StripedLock(int minimumStripes) {
+        int size = Integer.highestOneBit(Math.max(1, minimumStripes - 1)) << 1;
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < size; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        this.mask = size - 1;
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    // Locks the stripes of all keys, release them by closing the result
+    public Held lock(long... keys) {
+        int[] indexes = Arrays.stream(keys).mapToInt(this::stripe).sorted().distinct().toArray();
+        int locked = 0;
+        try {
+            for (int index : indexes) {
+                stripes[index].lock();
+                locked++;
+            }
+        } catch (RuntimeException | Error e) {
+            unlock(indexes, locked);
+            throw e;
+        }
+        return new Held(indexes);
+    }
+
+    int stripe(long key) {
+        long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & mask;
+    }
+
+    private void unlock(int[] indexes, int count) {
+        for (int i = count - 1; i >= 0; i--) {
+            stripes[indexes[i]].unlock();
+        }
+    }
+
+    public final class Held implements AutoCloseable {
+
+        private final int[] indexes;
+
+        private Held(int[] indexes) {
+            this.indexes = indexes;
+        }
+
+        @Override
+        public void close() {
+            unlock(indexes, indexes.length);
+        }
+    }
+}
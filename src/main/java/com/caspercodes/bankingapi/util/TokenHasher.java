@@ -0,0 +1,27 @@
+package com.caspercodes.bankingapi.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/*
+  SHA-256 digest of an opaque token as 64 lowercase hex characters.
+  Only the digest is stored, so a leaked table does not leak usable tokens
+ */
+public final class TokenHasher {
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private TokenHasher() {
+    }
+
+    public static String sha256Hex(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HEX.formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
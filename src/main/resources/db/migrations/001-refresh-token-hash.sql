@@ -0,0 +1,13 @@
+-- Replaces the raw refresh token column with its SHA-256 digest (TokenHasher).
+-- Run once against an existing database before deploying, live tokens keep working.
+
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS token_hash CHAR(64);
+
+UPDATE refresh_tokens
+SET token_hash = encode(sha256(convert_to(token, 'UTF8')), 'hex')
+WHERE token_hash IS NULL;
+
+ALTER TABLE refresh_tokens ALTER COLUMN token_hash SET NOT NULL;
+ALTER TABLE refresh_tokens ADD CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash);
+
+ALTER TABLE refresh_tokens DROP COLUMN token;
@@ -0,0 +1,50 @@
+-- Optional: converts refresh_tokens into a table range partitioned by expires_at, one partition per day.
+-- Expired tokens then leave by dropping whole partitions (RefreshTokenPartitionMaintainer,
+-- refresh-token.partitioning.enabled=true) instead of row deletes.
+-- Postgres needs the partition key in every unique constraint, so token_hash is unique per (token_hash, expires_at);
+-- lookups by token_hash still use that index. Run once during a maintenance window.
+
+BEGIN;
+
+ALTER TABLE refresh_tokens RENAME TO refresh_tokens_legacy;
+ALTER TABLE refresh_tokens_legacy RENAME CONSTRAINT uk_refresh_tokens_token_hash TO uk_refresh_tokens_legacy_token_hash;
+ALTER INDEX IF EXISTS idx_refresh_token_user_id RENAME TO idx_refresh_token_legacy_user_id;
+ALTER INDEX IF EXISTS idx_refresh_token_expires_at RENAME TO idx_refresh_token_legacy_expires_at;
+
+CREATE SEQUENCE IF NOT EXISTS refresh_tokens_partitioned_id_seq;
+SELECT setval('refresh_tokens_partitioned_id_seq', COALESCE((SELECT MAX(id) FROM refresh_tokens_legacy), 0) + 1, false);
+
+CREATE TABLE refresh_tokens (
+    id         BIGINT       NOT NULL DEFAULT nextval('refresh_tokens_partitioned_id_seq'),
+    token_hash CHAR(64)     NOT NULL,
+    user_id    BIGINT       NOT NULL REFERENCES users (id),
+    expires_at TIMESTAMP(6) NOT NULL,
+    created_at TIMESTAMP(6),
+    revoked    BOOLEAN,
+    PRIMARY KEY (id, expires_at),
+    CONSTRAINT uk_refresh_tokens_token_hash UNIQUE (token_hash, expires_at)
+) PARTITION BY RANGE (expires_at);
+
+CREATE INDEX idx_refresh_token_user_id ON refresh_tokens (user_id);
+
+-- One partition per day from the oldest live token to ten days ahead
+DO $$
+DECLARE
+    day DATE := LEAST(CURRENT_DATE - 1, COALESCE((SELECT MIN(expires_at)::date FROM refresh_tokens_legacy WHERE expires_at >= CURRENT_DATE - 1), CURRENT_DATE - 1));
+BEGIN
+    WHILE day <= CURRENT_DATE + 10 LOOP
+        EXECUTE format('CREATE TABLE IF NOT EXISTS refresh_tokens_p%s PARTITION OF refresh_tokens FOR VALUES FROM (%L) TO (%L)',
+                       to_char(day, 'YYYYMMDD'), day, day + 1);
+        day := day + 1;
+    END LOOP;
+END $$;
+
+-- Already expired tokens are not carried over
+INSERT INTO refresh_tokens (id, token_hash, user_id, expires_at, created_at, revoked)
+SELECT id, token_hash, user_id, expires_at, created_at, revoked
+FROM refresh_tokens_legacy
+WHERE expires_at >= CURRENT_DATE - 1;
+
+DROP TABLE refresh_tokens_legacy;
+
+COMMIT;
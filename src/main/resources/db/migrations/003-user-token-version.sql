@@ -0,0 +1,4 @@
+-- Adds the per-user token version (TokenVersionService). Existing tokens carry no version claim and count as 0.
+-- Run once against an existing database before deploying.
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
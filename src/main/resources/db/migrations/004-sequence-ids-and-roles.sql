@@ -0,0 +1,20 @@
+-- Moves refresh_tokens and email_outbox from IDENTITY columns to pooled sequences (IdAllocation.SIZE = 50)
+-- so Hibernate can batch their inserts, aligns users_seq and adds the user role.
+-- Run once before deploying, otherwise the sequences created by Hibernate start at 1 and collide with existing ids.
+-- Hibernate treats each sequence value as the top of a block of 50, so sequences restart 50 above the current maximum.
+
+CREATE SEQUENCE IF NOT EXISTS users_seq INCREMENT BY 50;
+ALTER SEQUENCE users_seq INCREMENT BY 50;
+SELECT setval('users_seq', COALESCE((SELECT MAX(id) FROM users), 0) + 50, false);
+
+CREATE SEQUENCE IF NOT EXISTS refresh_tokens_seq INCREMENT BY 50;
+SELECT setval('refresh_tokens_seq', COALESCE((SELECT MAX(id) FROM refresh_tokens), 0) + 50, false);
+ALTER TABLE refresh_tokens ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE refresh_tokens ALTER COLUMN id DROP DEFAULT;
+
+CREATE SEQUENCE IF NOT EXISTS email_outbox_seq INCREMENT BY 50;
+SELECT setval('email_outbox_seq', COALESCE((SELECT MAX(id) FROM email_outbox), 0) + 50, false);
+ALTER TABLE email_outbox ALTER COLUMN id DROP IDENTITY IF EXISTS;
+ALTER TABLE email_outbox ALTER COLUMN id DROP DEFAULT;
+
+ALTER TABLE users ADD COLUMN IF NOT EXISTS role VARCHAR(20) NOT NULL DEFAULT 'USER';
@@ -0,0 +1,42 @@
+-- Numbers each account's journal entries and adds balance checkpoints (ledger.checkpoint-interval, default 100).
+-- Run once before deploying on a database that already has ledger tables.
+-- Existing entries are numbered in id order, which is their posting order per account, and get the checkpoints
+-- LedgerPoster would have written for them. The modulus below must match ledger.checkpoint-interval.
+
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS posting_sequence BIGINT NOT NULL DEFAULT 0;
+ALTER TABLE journal_entries ADD COLUMN IF NOT EXISTS sequence_no BIGINT;
+
+UPDATE journal_entries e
+SET sequence_no = numbered.sequence_no
+FROM (SELECT id, ROW_NUMBER() OVER (PARTITION BY account_id ORDER BY id) AS sequence_no
+      FROM journal_entries) numbered
+WHERE e.id = numbered.id AND e.sequence_no IS NULL;
+
+ALTER TABLE journal_entries ALTER COLUMN sequence_no SET NOT NULL;
+
+UPDATE accounts a
+SET posting_sequence = COALESCE((SELECT MAX(sequence_no) FROM journal_entries e WHERE e.account_id = a.id), 0);
+
+DROP INDEX IF EXISTS idx_journal_entry_account_id;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_journal_entry_account_sequence ON journal_entries (account_id, sequence_no);
+
+-- Same shape Hibernate creates, with the balance still NUMERIC until 006
+CREATE SEQUENCE IF NOT EXISTS balance_checkpoints_seq INCREMENT BY 50;
+CREATE TABLE IF NOT EXISTS balance_checkpoints (
+    id          BIGINT         NOT NULL PRIMARY KEY,
+    account_id  BIGINT         NOT NULL,
+    sequence_no BIGINT         NOT NULL,
+    balance     NUMERIC(19, 2) NOT NULL,
+    created_at  TIMESTAMP(6)   NOT NULL,
+    CONSTRAINT uk_balance_checkpoint_account_sequence UNIQUE (account_id, sequence_no)
+);
+CREATE INDEX IF NOT EXISTS idx_balance_checkpoint_account_created_at ON balance_checkpoints (account_id, created_at);
+
+INSERT INTO balance_checkpoints (id, account_id, sequence_no, balance, created_at)
+SELECT nextval('balance_checkpoints_seq'), account_id, sequence_no, balance_after, created_at
+FROM journal_entries
+WHERE sequence_no % 100 = 0
+ON CONFLICT (account_id, sequence_no) DO NOTHING;
+
+-- Hibernate treats each sequence value as the top of a block of 50, see 004
+SELECT setval('balance_checkpoints_seq', COALESCE((SELECT MAX(id) FROM balance_checkpoints), 0) + 50, false);
@@ -0,0 +1,68 @@
+-- Ledger amounts move from NUMERIC(19,2) to BIGINT minor units of the currency (Money in the code).
+-- Run once before deploying on a database that already has ledger tables.
+-- Minor unit digits come from the table below, the same list as Money.SUPPORTED. Accounts can only be opened
+-- in those currencies, so the migration stops if it meets any other one, or an amount with more decimals than
+-- its currency has, rather than guess.
+
+CREATE TEMPORARY TABLE supported_currencies (code VARCHAR(3) PRIMARY KEY, fraction_digits INTEGER NOT NULL);
+INSERT INTO supported_currencies (code, fraction_digits) VALUES
+    ('NGN', 2),
+    ('USD', 2),
+    ('EUR', 2),
+    ('GBP', 2),
+    ('CAD', 2),
+    ('CHF', 2),
+    ('GHS', 2),
+    ('KES', 2),
+    ('ZAR', 2),
+    ('XOF', 0),
+    ('XAF', 0),
+    ('JPY', 0),
+    ('KWD', 3);
+
+DO $$
+DECLARE
+    unsupported TEXT;
+BEGIN
+    SELECT string_agg(DISTINCT a.currency, ', ') INTO unsupported
+    FROM accounts a
+    WHERE a.currency NOT IN (SELECT code FROM supported_currencies);
+    IF unsupported IS NOT NULL THEN
+        RAISE EXCEPTION 'Accounts in unsupported currencies: %', unsupported;
+    END IF;
+END $$;
+
+CREATE OR REPLACE FUNCTION pg_temp.minor_units(amount NUMERIC, currency VARCHAR) RETURNS BIGINT AS $$
+DECLARE
+    digits INTEGER := (SELECT fraction_digits FROM supported_currencies WHERE code = currency);
+BEGIN
+    IF amount <> trunc(amount, digits) THEN
+        RAISE EXCEPTION 'Amount % has more decimals than %', amount, currency;
+    END IF;
+    RETURN (amount * 10::NUMERIC ^ digits)::BIGINT;
+END
+$$ LANGUAGE plpgsql STABLE;
+
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS balance_minor BIGINT NOT NULL DEFAULT 0;
+UPDATE accounts SET balance_minor = pg_temp.minor_units(balance, currency);
+ALTER TABLE accounts DROP COLUMN IF EXISTS balance;
+
+ALTER TABLE journal_entries ADD COLUMN IF NOT EXISTS amount_minor BIGINT;
+ALTER TABLE journal_entries ADD COLUMN IF NOT EXISTS balance_after_minor BIGINT;
+UPDATE journal_entries
+SET amount_minor = pg_temp.minor_units(amount, currency),
+    balance_after_minor = pg_temp.minor_units(balance_after, currency);
+ALTER TABLE journal_entries ALTER COLUMN amount_minor SET NOT NULL;
+ALTER TABLE journal_entries ALTER COLUMN balance_after_minor SET NOT NULL;
+ALTER TABLE journal_entries DROP COLUMN IF EXISTS amount;
+ALTER TABLE journal_entries DROP COLUMN IF EXISTS balance_after;
+
+ALTER TABLE balance_checkpoints ADD COLUMN IF NOT EXISTS balance_minor BIGINT;
+UPDATE balance_checkpoints b
+SET balance_minor = pg_temp.minor_units(b.balance, a.currency)
+FROM accounts a
+WHERE a.id = b.account_id;
+ALTER TABLE balance_checkpoints ALTER COLUMN balance_minor SET NOT NULL;
+ALTER TABLE balance_checkpoints DROP COLUMN IF EXISTS balance;
+
+DROP TABLE supported_currencies;
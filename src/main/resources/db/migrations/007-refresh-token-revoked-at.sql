@@ -0,0 +1,9 @@
+-- Records when a refresh token was revoked, the purge keeps revoked tokens for
+-- refresh-token.purge.revoked-retention-hours from this time instead of from creation.
+-- Run once against an existing database before deploying. Works on the plain and the partitioned table.
+-- Tokens revoked before this migration have no revocation time, so they are treated as revoked now
+-- and kept for one more retention window.
+
+ALTER TABLE refresh_tokens ADD COLUMN IF NOT EXISTS revoked_at TIMESTAMP(6);
+
+UPDATE refresh_tokens SET revoked_at = now() WHERE revoked = true AND revoked_at IS NULL;
@@ -0,0 +1,6 @@
+-- Adds the SERVICE role for gateways calling /api/tokens/**.
+-- Hibernate generates a check constraint listing the enum values when it creates users, so it is widened here.
+-- Run once against an existing database before deploying.
+
+ALTER TABLE users DROP CONSTRAINT IF EXISTS users_role_check;
+ALTER TABLE users ADD CONSTRAINT users_role_check CHECK (role IN ('USER', 'ADMIN', 'SERVICE'));
@@ -0,0 +1,4 @@
+-- Lets the customer import look registered emails up case-insensitively (UserRepository.findExistingNormalizedEmails)
+-- without scanning users once per chunk. Run once against an existing database, it does not block writes.
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_users_email_lower ON users (LOWER(email));
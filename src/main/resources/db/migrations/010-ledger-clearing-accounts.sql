@@ -0,0 +1,6 @@
+-- Adds clearing accounts, the bank's side of deposits (TransferService.deposit). They have no owner and
+-- are opened on the first deposit in their currency. Run once before deploying on a database that already
+-- has ledger tables. Existing accounts are customer accounts.
+
+ALTER TABLE accounts ADD COLUMN IF NOT EXISTS type VARCHAR(20) NOT NULL DEFAULT 'CUSTOMER';
+ALTER TABLE accounts ALTER COLUMN owner_id DROP NOT NULL;
@@ -0,0 +1,24 @@
+-- Counts a failed login and locks the account once the count reaches the threshold.
+-- Every failure past the threshold doubles the lock, up to the maximum
+-- KEYS[1] failure counter, KEYS[2] lock key
+-- ARGV[1] counting window in seconds, ARGV[2] failures before the first lock,
+-- ARGV[3] first lock in seconds, ARGV[4] longest lock in seconds
+-- Returns the lock duration in seconds, or 0 if the account is not locked
+
+local window = tonumber(ARGV[1])
+local threshold = tonumber(ARGV[2])
+
+local failures = redis.call('INCR', KEYS[1])
+if failures == 1 then
+    redis.call('EXPIRE', KEYS[1], window)
+end
+
+if failures < threshold then
+    return 0
+end
+
+local lock = math.floor(math.min(tonumber(ARGV[3]) * 2 ^ math.min(failures - threshold, 20), tonumber(ARGV[4])))
+redis.call('SET', KEYS[2], failures, 'EX', lock)
+-- Keep the count past the lock, so the first failure after it locks for longer
+redis.call('EXPIRE', KEYS[1], lock + window)
+return lock
@@ -0,0 +1,8 @@
+-- Stores OTP state as a compact hash, replacing any previous value including legacy JSON strings
+-- KEYS[1] otp key
+-- ARGV[1] code, ARGV[2] attempts, ARGV[3] type ordinal, ARGV[4] created at and ARGV[5] expires at in epoch seconds, ARGV[6] ttl in seconds
+
+redis.call('DEL', KEYS[1])
+redis.call('HSET', KEYS[1], 'c', ARGV[1], 'a', ARGV[2], 't', ARGV[3], 'ca', ARGV[4], 'ea', ARGV[5])
+redis.call('EXPIRE', KEYS[1], ARGV[6])
+return 1
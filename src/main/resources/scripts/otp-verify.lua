@@ -0,0 +1,47 @@
+-- Verifies an OTP and updates its attempt and lock state atomically in one round trip
+-- KEYS[1] otp key, KEYS[2] lock key
+-- ARGV[1] submitted code, ARGV[2] max attempts, ARGV[3] lock duration in seconds
+-- Returns {status, attempts}: 0 verified, 1 locked, 2 missing or expired, 3 invalid code, 4 invalid code and now locked
+
+if redis.call('EXISTS', KEYS[2]) == 1 then
+    return {1, 0}
+end
+
+local kind = redis.call('TYPE', KEYS[1]).ok
+if kind == 'none' then
+    return {2, 0}
+end
+
+-- Hash layout written by otp-store.lua, JSON strings are legacy keys written before it
+local code, attempts, legacy
+if kind == 'hash' then
+    local fields = redis.call('HMGET', KEYS[1], 'c', 'a')
+    code = fields[1]
+    attempts = tonumber(fields[2]) or 0
+else
+    legacy = cjson.decode(redis.call('GET', KEYS[1]))
+    code = legacy['code']
+    attempts = tonumber(legacy['attempts']) or 0
+end
+
+local maxAttempts = tonumber(ARGV[2])
+
+if code == ARGV[1] and attempts < maxAttempts then
+    redis.call('DEL', KEYS[1])
+    return {0, attempts}
+end
+
+attempts = attempts + 1
+if attempts >= maxAttempts then
+    redis.call('SET', KEYS[2], 'true', 'EX', ARGV[3])
+    redis.call('DEL', KEYS[1])
+    return {4, attempts}
+end
+
+if legacy then
+    legacy['attempts'] = attempts
+    redis.call('SET', KEYS[1], cjson.encode(legacy), 'KEEPTTL')
+else
+    redis.call('HINCRBY', KEYS[1], 'a', 1)
+end
+return {3, attempts}
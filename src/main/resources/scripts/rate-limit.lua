@@ -0,0 +1,32 @@
+-- Sliding window rate limit over sorted sets of request timestamps, checking every key before counting any
+-- KEYS[n] window key
+-- ARGV[1] unique member for this request, ARGV[2n] window in ms and ARGV[2n + 1] max requests for KEYS[n]
+-- Returns 0 when allowed, otherwise the milliseconds until the most constrained window frees a slot
+
+local time = redis.call('TIME')
+local now = tonumber(time[1]) * 1000 + math.floor(tonumber(time[2]) / 1000)
+local retryAfter = 0
+
+for i, key in ipairs(KEYS) do
+    local window = tonumber(ARGV[2 * i])
+    local limit = tonumber(ARGV[2 * i + 1])
+    redis.call('ZREMRANGEBYSCORE', key, '-inf', now - window)
+    if redis.call('ZCARD', key) >= limit then
+        local oldest = redis.call('ZRANGE', key, 0, 0, 'WITHSCORES')
+        local wait = 1
+        if oldest[2] then
+            wait = math.max(1, tonumber(oldest[2]) + window - now)
+        end
+        retryAfter = math.max(retryAfter, wait)
+    end
+end
+
+if retryAfter > 0 then
+    return retryAfter
+end
+
+for i, key in ipairs(KEYS) do
+    redis.call('ZADD', key, now, ARGV[1])
+    redis.call('PEXPIRE', key, ARGV[2 * i])
+end
+return 0
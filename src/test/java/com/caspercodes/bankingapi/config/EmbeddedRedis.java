@@ -0,0 +1,63 @@
+package com.caspercodes.bankingapi.config;
+
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.RedisTemplate;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/*
+  One real redis-server per test JVM, started on first use, so the Lua scripts run with Redis' own semantics.
+  Tests share it and call flush() before each case
+ */
+public final class EmbeddedRedis {
+
+    private static RedisTemplate<String, String> template;
+
+    private EmbeddedRedis() {
+    }
+
+    // The same string template the application uses for OTP, rate limit and lockout keys
+    public static synchronized RedisTemplate<String, String> otpRedisTemplate() {
+        if (template == null) {
+            int port = freePort();
+            try {
+                RedisServer server = RedisServer.newRedisServer()
+                        .port(port)
+                        .bind("127.0.0.1")
+                        .setting("save \"\"")
+                        .setting("appendonly no")
+                        .onShutdownForceStop(true)
+                        .build();
+                server.start();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+
+            LettuceConnectionFactory connectionFactory =
+                    new LettuceConnectionFactory(new RedisStandaloneConfiguration("127.0.0.1", port));
+            connectionFactory.afterPropertiesSet();
+            connectionFactory.start();
+            template = new RedisConfig().otpRedisTemplate(connectionFactory);
+        }
+        return template;
+    }
+
+    public static void flush() {
+        otpRedisTemplate().execute(connection -> {
+            connection.serverCommands().flushDb();
+            return null;
+        }, true);
+    }
+
+    private static int freePort() {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
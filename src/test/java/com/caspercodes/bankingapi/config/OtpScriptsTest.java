@@ -0,0 +1,98 @@
+package com.caspercodes.bankingapi.config;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+  scripts/otp-store.lua and scripts/otp-verify.lua on a real Redis
+ */
+class OtpScriptsTest {
+
+    private static final String OTP_KEY = "otp:ada@example.com";
+
+    private static final String LOCK_KEY = "otp-lock:ada@example.com";
+
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final RedisConfig redisConfig = new RedisConfig();
+
+    private final RedisScript<Long> storeScript = redisConfig.otpStoreScript();
+
+    @SuppressWarnings("rawtypes")
+    private final RedisScript<List> verifyScript = redisConfig.otpVerifyScript();
+
+    private RedisTemplate<String, String> redis;
+
+    @BeforeEach
+    void setUp() {
+        redis = EmbeddedRedis.otpRedisTemplate();
+        EmbeddedRedis.flush();
+    }
+
+    @Test
+    void storeReplacesALegacyJsonValueWithTheHashLayout() {
+        redis.opsForValue().set(OTP_KEY, "{\"code\":\"111111\",\"attempts\":2}");
+
+        store("123456", 300);
+
+        assertThat(redis.opsForHash().entries(OTP_KEY)).isEqualTo(Map.of(
+                "c", "123456", "a", "0", "t", "1", "ca", "1700000000", "ea", "1700000300"));
+        assertThat(redis.getExpire(OTP_KEY)).isBetween(299L, 300L);
+    }
+
+    @Test
+    void rightCodeVerifiesOnceAndDeletesTheOtp() {
+        store("123456", 300);
+
+        assertThat(verify("123456")).containsExactly(0L, 0L);
+        assertThat(redis.hasKey(OTP_KEY)).isFalse();
+        assertThat(verify("123456")).containsExactly(2L, 0L);
+    }
+
+    @Test
+    void wrongCodesCountUpThenLockAndDropTheOtp() {
+        store("123456", 300);
+
+        assertThat(verify("000000")).containsExactly(3L, 1L);
+        assertThat(verify("000001")).containsExactly(3L, 2L);
+        assertThat(redis.opsForHash().get(OTP_KEY, "a")).isEqualTo("2");
+        assertThat(verify("000002")).containsExactly(4L, 3L);
+
+        assertThat(redis.hasKey(OTP_KEY)).isFalse();
+        assertThat(redis.getExpire(LOCK_KEY)).isBetween(899L, 900L);
+        // Locked even once a new code is stored
+        store("654321", 300);
+        assertThat(verify("654321")).containsExactly(1L, 0L);
+    }
+
+    @Test
+    void legacyJsonValuesAreVerifiedAndKeepTheirTtl() {
+        redis.opsForValue().set(OTP_KEY, "{\"code\":\"123456\",\"attempts\":0,\"type\":\"LOGIN\"}");
+        redis.expire(OTP_KEY, Duration.ofSeconds(120));
+
+        assertThat(verify("000000")).containsExactly(3L, 1L);
+        assertThat(redis.opsForValue().get(OTP_KEY)).contains("\"attempts\":1").contains("\"type\":\"LOGIN\"");
+        assertThat(redis.getExpire(OTP_KEY)).isBetween(119L, 120L);
+
+        assertThat(verify("123456")).containsExactly(0L, 1L);
+        assertThat(redis.hasKey(OTP_KEY)).isFalse();
+    }
+
+    private void store(String code, long ttlSeconds) {
+        redis.execute(storeScript, List.of(OTP_KEY),
+                code, "0", "1", "1700000000", String.valueOf(1700000000 + ttlSeconds), String.valueOf(ttlSeconds));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Long> verify(String code) {
+        return (List<Long>) redis.execute(verifyScript, List.of(OTP_KEY, LOCK_KEY), code, String.valueOf(MAX_ATTEMPTS), "900");
+    }
+}
@@ -0,0 +1,116 @@
+package com.caspercodes.bankingapi.config;
+
+import com.caspercodes.bankingapi.controller.TokenController;
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.security.CustomUserDetails;
+import com.caspercodes.bankingapi.security.JwtAuthenticationFilter;
+import com.caspercodes.bankingapi.security.PrincipalCache;
+import com.caspercodes.bankingapi.security.TokenVersionService;
+import com.caspercodes.bankingapi.service.IdempotencyService;
+import com.caspercodes.bankingapi.service.TokenIntrospectionService;
+import com.caspercodes.bankingapi.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultMatcher;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = TokenController.class)
+@Import({SecurityConfig.class, JwtAuthenticationFilter.class, JwtUtil.class, PrincipalCache.class})
+@TestPropertySource(properties = {
+        "jwt.secret=dGVzdC1zZWNyZXQtdGhhdC1pcy1sb25nLWVub3VnaC1mb3ItaHMyNTY=",
+        "jwt.expiration=60000",
+        "jwt.refresh-expiration=600000",
+        "rate-limit.enabled=false",
+        "idempotency.enabled=false"
+})
+class SecurityConfigTest {
+
+    private static final String INTROSPECT_BODY = "{\"tokens\":[\"abc\"]}";
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @MockitoBean
+    private TokenIntrospectionService tokenIntrospectionService;
+
+    @MockitoBean
+    private TokenVersionService tokenVersionService;
+
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+
+    @MockitoBean
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private RedisTemplate<String, String> otpRedisTemplate;
+
+    @MockitoBean
+    private RedisScript<Long> rateLimitScript;
+
+    @BeforeEach
+    void setUp() {
+        when(tokenVersionService.isCurrent(anyString(), anyInt())).thenReturn(true);
+        when(tokenIntrospectionService.introspect(anyList())).thenReturn(List.of());
+    }
+
+    @Test
+    void introspectionIsOpenToServices() throws Exception {
+        introspectAs(User.Role.SERVICE, status().isOk());
+    }
+
+    @Test
+    void introspectionIsOpenToAdmins() throws Exception {
+        introspectAs(User.Role.ADMIN, status().isOk());
+    }
+
+    @Test
+    void introspectionIsForbiddenToCustomers() throws Exception {
+        introspectAs(User.Role.USER, status().isForbidden());
+    }
+
+    @Test
+    void introspectionRequiresAuthentication() throws Exception {
+        mockMvc.perform(post("/api/tokens/introspect")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(INTROSPECT_BODY))
+                .andExpect(status().isUnauthorized());
+    }
+
+    private void introspectAs(User.Role role, ResultMatcher expected) throws Exception {
+        User user = User.builder().id(1L).email("caller@example.com").password("unused").role(role).build();
+        String token = jwtUtil.generateToken(new CustomUserDetails(user));
+
+        mockMvc.perform(post("/api/tokens/introspect")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + token)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(INTROSPECT_BODY))
+                .andExpect(expected);
+    }
+}
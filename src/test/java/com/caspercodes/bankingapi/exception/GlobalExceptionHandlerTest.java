@@ -0,0 +1,48 @@
+package com.caspercodes.bankingapi.exception;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.sql.SQLException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GlobalExceptionHandlerTest {
+
+    private final GlobalExceptionHandler handler = new GlobalExceptionHandler();
+
+    @Test
+    void uniqueViolationIsAConflict() {
+        ResponseEntity<ErrorResponse> response = handler.handleDataIntegrityViolation(violation("23505"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+    }
+
+    @Test
+    void foreignKeyViolationIsAServerError() {
+        ResponseEntity<ErrorResponse> response = handler.handleDataIntegrityViolation(violation("23503"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    void notNullViolationIsAServerError() {
+        ResponseEntity<ErrorResponse> response = handler.handleDataIntegrityViolation(violation("23502"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    @Test
+    void violationWithoutSqlStateIsAServerError() {
+        ResponseEntity<ErrorResponse> response =
+                handler.handleDataIntegrityViolation(new DataIntegrityViolationException("constraint failed"));
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.INTERNAL_SERVER_ERROR);
+    }
+
+    private static DataIntegrityViolationException violation(String sqlState) {
+        return new DataIntegrityViolationException("constraint failed", new SQLException("constraint failed", sqlState));
+    }
+}
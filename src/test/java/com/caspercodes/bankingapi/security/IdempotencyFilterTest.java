@@ -0,0 +1,209 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.service.IdempotencyService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class IdempotencyFilterTest {
+
+    private static final int MAX_BODY_BYTES = 64;
+
+    private IdempotencyService idempotencyService;
+
+    private IdempotencyFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = mock(IdempotencyService.class);
+        filter = new IdempotencyFilter(idempotencyService, new ObjectMapper().findAndRegisterModules(), true,
+                MAX_BODY_BYTES,
+                new String[] {"/api/transfers"},
+                new String[] {"/api/auth/verify-otp", "/api/auth/refresh-token"});
+    }
+
+    @Test
+    void chunkedBodyOverTheLimitRunsWithoutIdempotencyAndReachesTheControllerWhole() throws Exception {
+        String body = "{\"description\":\"" + "x".repeat(10 * MAX_BODY_BYTES) + "\"}";
+        MockHttpServletRequest request = chunked(post("/api/transfers", body));
+        AtomicReference<String> received = new AtomicReference<>();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) ->
+                received.set(StreamUtils.copyToString(req.getInputStream(), StandardCharsets.UTF_8)));
+
+        assertThat(received.get()).isEqualTo(body);
+        verifyNoInteractions(idempotencyService);
+    }
+
+    @Test
+    void chunkedBodyWithinTheLimitIsClaimed() throws Exception {
+        acquire();
+        MockHttpServletRequest request = chunked(post("/api/transfers", "{\"amount\":10}"));
+        AtomicReference<String> received = new AtomicReference<>();
+        FilterChain chain = (req, res) ->
+                received.set(StreamUtils.copyToString(req.getInputStream(), StandardCharsets.UTF_8));
+
+        filter.doFilter(request, new MockHttpServletResponse(), chain);
+
+        assertThat(received.get()).isEqualTo("{\"amount\":10}");
+        verify(idempotencyService).claim(anyString(), anyString(), eq(true));
+    }
+
+    @Test
+    void tokenResponsesAreRecordedWithoutTheirBody() throws Exception {
+        acquire();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(post("/api/auth/refresh-token", "{\"refreshToken\":\"r1\"}"), response, (req, res) -> {
+            res.setContentType("application/json");
+            res.getWriter().write("{\"accessToken\":\"a2\",\"refreshToken\":\"r2\"}");
+        });
+
+        ArgumentCaptor<IdempotencyService.StoredResponse> stored =
+                ArgumentCaptor.forClass(IdempotencyService.StoredResponse.class);
+        verify(idempotencyService).complete(anyString(), anyString(), stored.capture(), eq(false));
+        assertThat(stored.getValue()).isEqualTo(new IdempotencyService.StoredResponse(200, null, null));
+        assertThat(response.getContentAsString()).contains("r2");
+    }
+
+    @Test
+    void retryOfATokenRequestIsRefusedInsteadOfReplayed() throws Exception {
+        when(idempotencyService.claim(anyString(), anyString(), anyBoolean())).thenReturn(new IdempotencyService.Claim(
+                IdempotencyService.Status.COMPLETED, new IdempotencyService.StoredResponse(200, null, null)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(post("/api/auth/verify-otp", "{\"email\":\"ada@example.com\",\"otp\":\"123456\"}"),
+                response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(409);
+        assertThat(response.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isNull();
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    void otherCompletedRequestsAreReplayed() throws Exception {
+        when(idempotencyService.claim(anyString(), anyString(), anyBoolean())).thenReturn(new IdempotencyService.Claim(
+                IdempotencyService.Status.COMPLETED,
+                new IdempotencyService.StoredResponse(201, "application/json", "{\"reference\":\"T1\"}")));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = mock(FilterChain.class);
+
+        filter.doFilter(post("/api/transfers", "{\"amount\":10}"), response, chain);
+
+        assertThat(response.getStatus()).isEqualTo(201);
+        assertThat(response.getHeader(IdempotencyFilter.REPLAYED_HEADER)).isEqualTo("true");
+        assertThat(response.getContentAsString()).isEqualTo("{\"reference\":\"T1\"}");
+        verifyNoInteractions(chain);
+    }
+
+    @Test
+    void serverErrorsAreReleasedForRetry() throws Exception {
+        acquire();
+
+        filter.doFilter(post("/api/transfers", "{\"amount\":10}"), new MockHttpServletResponse(),
+                (req, res) -> ((HttpServletResponse) res).setStatus(500));
+
+        verify(idempotencyService).release(anyString(), eq(true));
+    }
+
+    @Test
+    void serverErrorWithAnUnknownOutcomeKeepsTheKeyClaimed() throws Exception {
+        acquire();
+
+        filter.doFilter(post("/api/transfers", "{\"amount\":10}"), new MockHttpServletResponse(), (req, res) -> {
+            req.setAttribute(IdempotencyFilter.KEEP_CLAIMED_ATTRIBUTE, Boolean.TRUE);
+            ((HttpServletResponse) res).setStatus(500);
+        });
+
+        verify(idempotencyService, never()).release(anyString(), anyBoolean());
+        verify(idempotencyService, never()).complete(anyString(), anyString(), any(), anyBoolean());
+    }
+
+    @Test
+    void anonymousKeysAreScopedByTheEmailInTheRequest() throws Exception {
+        acquire();
+
+        String ada = keyHashFor(post("/api/auth/login", "{\"email\":\"ada@example.com\",\"password\":\"p\"}"));
+        String adaCased = keyHashFor(post("/api/auth/login", "{\"email\":\" Ada@Example.com\",\"password\":\"p\"}"));
+        String grace = keyHashFor(post("/api/auth/login", "{\"email\":\"grace@example.com\",\"password\":\"p\"}"));
+        MockHttpServletRequest resend = post("/api/auth/resend-otp", "");
+        resend.setParameter("email", "ada@example.com");
+
+        assertThat(adaCased).isEqualTo(ada);
+        assertThat(grace).isNotEqualTo(ada);
+        assertThat(keyHashFor(resend)).isEqualTo(ada);
+    }
+
+    @Test
+    void anonymousKeysWithoutAnEmailAreScopedByAddress() throws Exception {
+        acquire();
+        MockHttpServletRequest first = post("/api/auth/refresh-token", "{\"refreshToken\":\"r1\"}");
+        first.setRemoteAddr("10.0.0.1");
+        MockHttpServletRequest second = post("/api/auth/refresh-token", "{\"refreshToken\":\"r1\"}");
+        second.setRemoteAddr("10.0.0.2");
+
+        assertThat(keyHashFor(first)).isNotEqualTo(keyHashFor(second));
+    }
+
+    private String keyHashFor(MockHttpServletRequest request) throws Exception {
+        clearInvocations(idempotencyService);
+        filter.doFilter(request, new MockHttpServletResponse(), mock(FilterChain.class));
+        ArgumentCaptor<String> keyHash = ArgumentCaptor.forClass(String.class);
+        verify(idempotencyService).claim(keyHash.capture(), anyString(), anyBoolean());
+        return keyHash.getValue();
+    }
+
+    private void acquire() {
+        when(idempotencyService.claim(anyString(), anyString(), anyBoolean()))
+                .thenReturn(new IdempotencyService.Claim(IdempotencyService.Status.ACQUIRED, null));
+    }
+
+    private static MockHttpServletRequest post(String uri, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.addHeader(IdempotencyFilter.HEADER, "key-1");
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+
+    // Transfer-Encoding: chunked, the servlet container reports no Content-Length
+    private static MockHttpServletRequest chunked(MockHttpServletRequest request) {
+        MockHttpServletRequest chunked = new MockHttpServletRequest("POST", request.getRequestURI()) {
+            @Override
+            public long getContentLengthLong() {
+                return -1;
+            }
+
+            @Override
+            public int getContentLength() {
+                return -1;
+            }
+        };
+        chunked.addHeader(IdempotencyFilter.HEADER, request.getHeader(IdempotencyFilter.HEADER));
+        chunked.setContentType(request.getContentType());
+        chunked.setContent(request.getContentAsByteArray());
+        return chunked;
+    }
+}
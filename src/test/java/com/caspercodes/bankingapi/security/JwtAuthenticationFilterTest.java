@@ -0,0 +1,106 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.config.SecurityConfig;
+import com.caspercodes.bankingapi.controller.AccountController;
+import com.caspercodes.bankingapi.service.AccountService;
+import com.caspercodes.bankingapi.service.IdempotencyService;
+import com.caspercodes.bankingapi.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.http.HttpHeaders;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@WebMvcTest(controllers = AccountController.class)
+@Import({SecurityConfig.class, JwtUtil.class, PrincipalCache.class})
+@TestPropertySource(properties = {
+        "jwt.secret=dGVzdC1zZWNyZXQtdGhhdC1pcy1sb25nLWVub3VnaC1mb3ItaHMyNTY=",
+        "jwt.expiration=60000",
+        "jwt.refresh-expiration=600000",
+        "rate-limit.enabled=false",
+        "idempotency.enabled=false"
+})
+class JwtAuthenticationFilterTest {
+
+    private final UserDetails user = User.withUsername("ada@example.com").password("unused").roles("USER").build();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private JwtUtil jwtUtil;
+
+    @MockitoBean
+    private AccountService accountService;
+
+    @MockitoBean
+    private TokenVersionService tokenVersionService;
+
+    @MockitoBean
+    private UserDetailsService userDetailsService;
+
+    @MockitoBean
+    private UserDetailsPasswordService userDetailsPasswordService;
+
+    @MockitoBean
+    private IdempotencyService idempotencyService;
+
+    @MockitoBean
+    private RedisTemplate<String, String> otpRedisTemplate;
+
+    @MockitoBean
+    private RedisScript<Long> rateLimitScript;
+
+    @BeforeEach
+    void setUp() {
+        when(tokenVersionService.isCurrent(anyString(), anyInt())).thenReturn(true);
+        when(accountService.listAccounts(anyString())).thenReturn(List.of());
+    }
+
+    @Test
+    void acceptsAccessToken() throws Exception {
+        mockMvc.perform(get("/api/accounts")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(user)))
+                .andExpect(status().isOk());
+    }
+
+    @Test
+    void rejectsRefreshTokenAsBearer() throws Exception {
+        mockMvc.perform(get("/api/accounts")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateRefreshToken(user)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void rejectsRevokedTokenVersion() throws Exception {
+        when(tokenVersionService.isCurrent(anyString(), anyInt())).thenReturn(false);
+
+        mockMvc.perform(get("/api/accounts")
+                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + jwtUtil.generateToken(user)))
+                .andExpect(status().isUnauthorized());
+    }
+
+    @Test
+    void rejectsMissingToken() throws Exception {
+        mockMvc.perform(get("/api/accounts"))
+                .andExpect(status().isUnauthorized());
+    }
+}
@@ -0,0 +1,100 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.config.EmbeddedRedis;
+import com.caspercodes.bankingapi.config.RedisConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+  Lockout with scripts/login-failure.lua on a real Redis
+ */
+class LoginAttemptServiceTest {
+
+    private static final int THRESHOLD = 3;
+
+    private static final long BASE_LOCK_SECONDS = 60;
+
+    private static final long MAX_LOCK_SECONDS = 300;
+
+    private LoginAttemptService loginAttemptService;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+        loginAttemptService = service(EmbeddedRedis.otpRedisTemplate());
+    }
+
+    @Test
+    void failuresBelowTheThresholdDoNotLock() {
+        for (int i = 1; i < THRESHOLD; i++) {
+            assertThat(loginAttemptService.recordFailure("ada@example.com")).isZero();
+        }
+
+        assertThat(loginAttemptService.isLocked("ada@example.com")).isFalse();
+    }
+
+    @Test
+    void lockDoublesOnEveryFailurePastTheThresholdUpToTheMaximum() {
+        for (int i = 1; i < THRESHOLD; i++) {
+            loginAttemptService.recordFailure("ada@example.com");
+        }
+
+        assertThat(loginAttemptService.recordFailure("ada@example.com")).isEqualTo(60);
+        assertThat(loginAttemptService.recordFailure("ada@example.com")).isEqualTo(120);
+        assertThat(loginAttemptService.recordFailure("ada@example.com")).isEqualTo(240);
+        assertThat(loginAttemptService.recordFailure("ada@example.com")).isEqualTo(MAX_LOCK_SECONDS);
+        assertThat(loginAttemptService.recordFailure("ada@example.com")).isEqualTo(MAX_LOCK_SECONDS);
+        assertThat(loginAttemptService.lockedForSeconds("ada@example.com"))
+                .isBetween(MAX_LOCK_SECONDS - 1, MAX_LOCK_SECONDS);
+    }
+
+    @Test
+    void emailsAreCountedCaseInsensitively() {
+        loginAttemptService.recordFailure("ada@example.com");
+        loginAttemptService.recordFailure(" ADA@example.com");
+
+        assertThat(loginAttemptService.recordFailure("Ada@Example.com")).isEqualTo(BASE_LOCK_SECONDS);
+        assertThat(loginAttemptService.isLocked("ada@EXAMPLE.com")).isTrue();
+        assertThat(loginAttemptService.isLocked("grace@example.com")).isFalse();
+    }
+
+    @Test
+    void resetClearsTheCountAndTheLock() {
+        for (int i = 0; i < THRESHOLD; i++) {
+            loginAttemptService.recordFailure("ada@example.com");
+        }
+
+        loginAttemptService.reset("ada@example.com");
+
+        assertThat(loginAttemptService.isLocked("ada@example.com")).isFalse();
+        assertThat(loginAttemptService.recordFailure("ada@example.com")).isZero();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unavailableRedisFailsOpen() {
+        RedisTemplate<String, String> redis = mock(RedisTemplate.class);
+        when(redis.getExpire(anyString())).thenThrow(new RedisConnectionFailureException("down"));
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        loginAttemptService = service(redis);
+
+        assertThat(loginAttemptService.recordFailure("ada@example.com")).isZero();
+        assertThat(loginAttemptService.isLocked("ada@example.com")).isFalse();
+    }
+
+    private static LoginAttemptService service(RedisTemplate<String, String> redis) {
+        return new LoginAttemptService(redis, new RedisConfig().loginFailureScript(),
+                900, THRESHOLD, BASE_LOCK_SECONDS, MAX_LOCK_SECONDS);
+    }
+}
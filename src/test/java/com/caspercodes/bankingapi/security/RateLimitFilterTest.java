@@ -0,0 +1,132 @@
+package com.caspercodes.bankingapi.security;
+
+import com.caspercodes.bankingapi.config.EmbeddedRedis;
+import com.caspercodes.bankingapi.config.RedisConfig;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.util.StreamUtils;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+  The filter with scripts/rate-limit.lua on a real Redis
+ */
+class RateLimitFilterTest {
+
+    private static final int IP_MAX_REQUESTS = 3;
+
+    private static final int EMAIL_MAX_REQUESTS = 2;
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private final RedisScript<Long> rateLimitScript = new RedisConfig().rateLimitScript();
+
+    private RateLimitFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+        filter = filter(EmbeddedRedis.otpRedisTemplate());
+    }
+
+    @Test
+    void requestsOverTheIpLimitGet429WithRetryAfter() throws Exception {
+        for (int i = 0; i < IP_MAX_REQUESTS; i++) {
+            assertThat(send(refresh("10.0.0.1")).getStatus()).isEqualTo(200);
+        }
+
+        MockHttpServletResponse rejected = send(refresh("10.0.0.1"));
+
+        assertThat(rejected.getStatus()).isEqualTo(429);
+        assertThat(Long.parseLong(rejected.getHeader("Retry-After"))).isBetween(1L, 60L);
+        assertThat(send(refresh("10.0.0.2")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void otpEmailsAreLimitedPerNormalizedEmailAcrossAddresses() throws Exception {
+        assertThat(send(login("10.0.0.1", "ada@example.com")).getStatus()).isEqualTo(200);
+        assertThat(send(login("10.0.0.2", " ADA@example.com")).getStatus()).isEqualTo(200);
+
+        assertThat(send(login("10.0.0.3", "Ada@Example.com")).getStatus()).isEqualTo(429);
+        assertThat(send(login("10.0.0.3", "grace@example.com")).getStatus()).isEqualTo(200);
+    }
+
+    @Test
+    void rejectedRequestsDoNotUseUpTheOtherWindows() throws Exception {
+        assertThat(send(login("10.0.0.1", "ada@example.com")).getStatus()).isEqualTo(200);
+        assertThat(send(login("10.0.0.2", "ada@example.com")).getStatus()).isEqualTo(200);
+        for (int i = 0; i < 5; i++) {
+            assertThat(send(login("10.0.0.1", "ada@example.com")).getStatus()).isEqualTo(429);
+        }
+
+        // One request of the three counted so far, the rejected ones left the IP window alone
+        assertThat(send(refresh("10.0.0.1")).getStatus()).isEqualTo(200);
+        assertThat(send(refresh("10.0.0.1")).getStatus()).isEqualTo(200);
+        assertThat(send(refresh("10.0.0.1")).getStatus()).isEqualTo(429);
+    }
+
+    @Test
+    void theInspectedBodyStillReachesTheController() throws Exception {
+        MockHttpServletRequest request = login("10.0.0.1", "ada@example.com");
+        StringBuilder received = new StringBuilder();
+
+        filter.doFilter(request, new MockHttpServletResponse(), (req, res) ->
+                received.append(StreamUtils.copyToString(req.getInputStream(), StandardCharsets.UTF_8)));
+
+        assertThat(received.toString()).contains("ada@example.com");
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void unavailableRedisLetsRequestsThrough() throws Exception {
+        RedisTemplate<String, String> redis = mock(RedisTemplate.class);
+        when(redis.execute(any(RedisScript.class), anyList(), any(Object[].class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        filter = filter(redis);
+
+        for (int i = 0; i <= IP_MAX_REQUESTS; i++) {
+            assertThat(send(refresh("10.0.0.1")).getStatus()).isEqualTo(200);
+        }
+    }
+
+    private RateLimitFilter filter(RedisTemplate<String, String> redis) {
+        return new RateLimitFilter(redis, rateLimitScript, objectMapper, true,
+                60, IP_MAX_REQUESTS, 600, EMAIL_MAX_REQUESTS);
+    }
+
+    private MockHttpServletResponse send(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        FilterChain chain = (req, res) -> ((MockHttpServletResponse) res).setStatus(200);
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest login(String address, String email) {
+        return post("/api/auth/login", address, "{\"email\":\"" + email + "\",\"password\":\"secret\"}");
+    }
+
+    private static MockHttpServletRequest refresh(String address) {
+        return post("/api/auth/refresh-token", address, "{\"refreshToken\":\"r1\"}");
+    }
+
+    private static MockHttpServletRequest post(String uri, String address, String body) {
+        MockHttpServletRequest request = new MockHttpServletRequest("POST", uri);
+        request.setRemoteAddr(address);
+        request.setContentType("application/json");
+        request.setContent(body.getBytes(StandardCharsets.UTF_8));
+        return request;
+    }
+}
@@ -0,0 +1,200 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.AccountBalanceDTO;
+import com.caspercodes.bankingapi.exception.AccountNotFoundException;
+import com.caspercodes.bankingapi.exception.UnsupportedCurrencyException;
+import com.caspercodes.bankingapi.model.Account;
+import com.caspercodes.bankingapi.model.BalanceCheckpoint;
+import com.caspercodes.bankingapi.model.JournalEntry;
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.repository.AccountRepository;
+import com.caspercodes.bankingapi.repository.BalanceCheckpointRepository;
+import com.caspercodes.bankingapi.repository.JournalEntryRepository;
+import com.caspercodes.bankingapi.repository.UserRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+  getBalanceAt against an in-memory journal, the repositories answer their queries with the same semantics as the SQL
+ */
+class AccountServiceTest {
+
+    private static final int INTERVAL = 10;
+
+    private static final String OWNER_EMAIL = "ada@example.com";
+
+    private static final long OWNER_ID = 5;
+
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private final List<JournalEntry> journal = new ArrayList<>();
+
+    private final List<BalanceCheckpoint> checkpoints = new ArrayList<>();
+
+    private Account account;
+
+    private AccountService accountService;
+
+    @BeforeEach
+    void setUp() {
+        AccountRepository accountRepository = mock(AccountRepository.class);
+        JournalEntryRepository journalEntryRepository = mock(JournalEntryRepository.class);
+        BalanceCheckpointRepository balanceCheckpointRepository = mock(BalanceCheckpointRepository.class);
+        UserCache userCache = mock(UserCache.class);
+
+        account = Account.builder()
+                .id(1L)
+                .accountNumber("1000000001")
+                .owner(User.builder().id(OWNER_ID).build())
+                .currency("NGN")
+                .build();
+        when(accountRepository.findByAccountNumber("1000000001")).thenReturn(Optional.of(account));
+        when(userCache.find(OWNER_EMAIL)).thenReturn(Optional.of(new UserCache.Snapshot(
+                OWNER_ID, "Ada", "Lovelace", OWNER_EMAIL, null, null, true, true, 0, User.Role.USER)));
+
+        when(balanceCheckpointRepository.findFirstByAccountIdAndCreatedAtLessThanEqualOrderByCreatedAtDescSequenceNoDesc(
+                anyLong(), any())).thenAnswer(invocation -> {
+            LocalDateTime at = invocation.getArgument(1);
+            return checkpoints.stream()
+                    .filter(checkpoint -> !checkpoint.getCreatedAt().isAfter(at))
+                    .max(Comparator.comparing(BalanceCheckpoint::getCreatedAt)
+                            .thenComparingLong(BalanceCheckpoint::getSequenceNo));
+        });
+        when(journalEntryRepository.sumTail(anyLong(), anyLong(), anyLong(), any())).thenAnswer(invocation -> {
+            long after = invocation.getArgument(1);
+            long through = invocation.getArgument(2);
+            LocalDateTime at = invocation.getArgument(3);
+            List<JournalEntry> tail = journal.stream()
+                    .filter(entry -> entry.getSequenceNo() > after && entry.getSequenceNo() <= through)
+                    .filter(entry -> !entry.getCreatedAt().isAfter(at))
+                    .toList();
+            long change = tail.stream().mapToLong(AccountServiceTest::signed).sum();
+            Long last = tail.stream().map(JournalEntry::getSequenceNo).max(Long::compare).orElse(null);
+            return new JournalEntryRepository.TailChange() {
+                @Override
+                public Long getChange() {
+                    return change;
+                }
+
+                @Override
+                public Long getLastSequence() {
+                    return last;
+                }
+            };
+        });
+
+        accountService = new AccountService(accountRepository, journalEntryRepository, mock(UserRepository.class),
+                userCache, balanceCheckpointRepository);
+        ReflectionTestUtils.setField(accountService, "checkpointInterval", INTERVAL);
+    }
+
+    @Test
+    void balanceAtMatchesTheFullJournalSumAtEveryPointInTime() {
+        post(437, new Random(7));
+
+        LocalDateTime end = journal.getLast().getCreatedAt().plusSeconds(2);
+        for (LocalDateTime at = START.minusSeconds(1); !at.isAfter(end); at = at.plusSeconds(1)) {
+            AccountBalanceDTO balance = accountService.getBalanceAt(OWNER_EMAIL, "1000000001", at);
+
+            assertThat(balance.getBalance()).as("balance at %s", at).isEqualByComparingTo(fullJournalSum(at));
+            assertThat(balance.getSequenceNo()).as("sequence at %s", at).isEqualTo(lastSequence(at));
+        }
+    }
+
+    @Test
+    void latestBalanceAtMatchesTheMaterializedBalance() {
+        post(95, new Random(11));
+
+        AccountBalanceDTO historical = accountService.getBalanceAt(OWNER_EMAIL, "1000000001", LocalDateTime.now());
+        AccountBalanceDTO current = accountService.getBalance(OWNER_EMAIL, "1000000001");
+
+        assertThat(historical.getBalance()).isEqualByComparingTo(current.getBalance());
+        assertThat(historical.getSequenceNo()).isEqualTo(current.getSequenceNo());
+    }
+
+    @Test
+    void otherCustomersAccountsAreReportedAsMissing() {
+        account.setOwner(User.builder().id(OWNER_ID + 1).build());
+
+        assertThatThrownBy(() -> accountService.getBalanceAt(OWNER_EMAIL, "1000000001", START))
+                .isInstanceOf(AccountNotFoundException.class);
+    }
+
+    // Entries as LedgerPoster writes them: several share a group commit time, every INTERVAL-th gets a checkpoint
+    @Test
+    void currenciesOutsideTheSupportedTableCannotBeOpened() {
+        for (String currency : List.of("CLF", "XAU", "XXX")) {
+            assertThatThrownBy(() -> accountService.openAccount(OWNER_EMAIL, currency))
+                    .isInstanceOf(UnsupportedCurrencyException.class);
+        }
+    }
+
+    private void post(int count, Random random) {
+        long balance = 0;
+        LocalDateTime postedAt = START;
+        for (long sequence = 1; sequence <= count; sequence++) {
+            if (random.nextInt(3) == 0) {
+                postedAt = postedAt.plusSeconds(1 + random.nextInt(3));
+            }
+            boolean credit = balance == 0 || random.nextBoolean();
+            long amount = credit ? 1 + random.nextInt(100_000) : 1 + random.nextLong(balance);
+            balance += credit ? amount : -amount;
+
+            journal.add(JournalEntry.builder()
+                    .accountId(account.getId())
+                    .sequenceNo(sequence)
+                    .direction(credit ? JournalEntry.Direction.CREDIT : JournalEntry.Direction.DEBIT)
+                    .amount(amount)
+                    .currency("NGN")
+                    .balanceAfter(balance)
+                    .createdAt(postedAt)
+                    .build());
+            if (sequence % INTERVAL == 0) {
+                checkpoints.add(BalanceCheckpoint.builder()
+                        .accountId(account.getId())
+                        .sequenceNo(sequence)
+                        .balance(balance)
+                        .createdAt(postedAt)
+                        .build());
+            }
+        }
+        account.setBalance(balance);
+        account.setPostingSequence(count);
+    }
+
+    private BigDecimal fullJournalSum(LocalDateTime at) {
+        long sum = journal.stream()
+                .filter(entry -> !entry.getCreatedAt().isAfter(at))
+                .mapToLong(AccountServiceTest::signed)
+                .sum();
+        return BigDecimal.valueOf(sum, 2);
+    }
+
+    private long lastSequence(LocalDateTime at) {
+        return journal.stream()
+                .filter(entry -> !entry.getCreatedAt().isAfter(at))
+                .mapToLong(JournalEntry::getSequenceNo)
+                .max()
+                .orElse(0);
+    }
+
+    private static long signed(JournalEntry entry) {
+        return entry.getDirection() == JournalEntry.Direction.CREDIT ? entry.getAmount() : -entry.getAmount();
+    }
+}
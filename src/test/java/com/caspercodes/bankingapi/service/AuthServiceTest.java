@@ -0,0 +1,232 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.AuthResponseDTO;
+import com.caspercodes.bankingapi.dto.RegisterRequestDTO;
+import com.caspercodes.bankingapi.exception.EmailAlreadyExistsException;
+import com.caspercodes.bankingapi.exception.InvalidTokenException;
+import com.caspercodes.bankingapi.exception.TokenExpiredException;
+import com.caspercodes.bankingapi.model.RefreshToken;
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.repository.RefreshTokenRepository;
+import com.caspercodes.bankingapi.repository.UserRepository;
+import com.caspercodes.bankingapi.security.CustomUserDetails;
+import com.caspercodes.bankingapi.security.LoginAttemptService;
+import com.caspercodes.bankingapi.security.TokenVersionService;
+import com.caspercodes.bankingapi.util.JwtUtil;
+import com.caspercodes.bankingapi.util.TokenHasher;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/*
+  Refresh token rotation and reuse detection against an in-memory refresh_tokens table,
+  the repository answers its queries with the same conditions as the SQL
+ */
+class AuthServiceTest {
+
+    private static final long USER_ID = 5;
+
+    private final Map<String, StoredToken> refreshTokens = new HashMap<>();
+
+    private User user;
+
+    private JwtUtil jwtUtil;
+
+    private UserRepository userRepository;
+
+    private RegisteredEmailFilter registeredEmailFilter;
+
+    private AuthService authService;
+
+    private static final class StoredToken {
+        private final long userId;
+        private final LocalDateTime expiresAt;
+        private boolean revoked;
+
+        private StoredToken(long userId, LocalDateTime expiresAt) {
+            this.userId = userId;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        user = User.builder()
+                .id(USER_ID)
+                .firstName("Ada")
+                .lastName("Lovelace")
+                .email("ada@example.com")
+                .isVerified(true)
+                .tokenVersion(0)
+                .role(User.Role.USER)
+                .build();
+
+        jwtUtil = new JwtUtil();
+        ReflectionTestUtils.setField(jwtUtil, "algorithm", JwtUtil.Algorithm.HS256);
+        ReflectionTestUtils.setField(jwtUtil, "secret", "dGVzdC1zZWNyZXQtdGhhdC1pcy1sb25nLWVub3VnaC1mb3ItaHMyNTY=");
+        ReflectionTestUtils.setField(jwtUtil, "keyId", "primary");
+        ReflectionTestUtils.setField(jwtUtil, "previousSecrets", "");
+        ReflectionTestUtils.setField(jwtUtil, "previousPublicKeys", "");
+        ReflectionTestUtils.setField(jwtUtil, "expiration", 60_000L);
+        ReflectionTestUtils.setField(jwtUtil, "refreshExpiration", 600_000L);
+        ReflectionTestUtils.invokeMethod(jwtUtil, "init");
+
+        userRepository = mock(UserRepository.class);
+        registeredEmailFilter = mock(RegisteredEmailFilter.class);
+        when(userRepository.findById(USER_ID)).thenAnswer(invocation -> Optional.of(user));
+        when(userRepository.getReferenceById(USER_ID)).thenAnswer(invocation -> user);
+
+        RefreshTokenRepository refreshTokenRepository = mock(RefreshTokenRepository.class);
+        when(refreshTokenRepository.save(any(RefreshToken.class))).thenAnswer(invocation -> {
+            RefreshToken token = invocation.getArgument(0);
+            if (refreshTokens.putIfAbsent(token.getTokenHash(),
+                    new StoredToken(token.getUser().getId(), token.getExpiresAt())) != null) {
+                throw new IllegalStateException("Duplicate token_hash " + token.getTokenHash());
+            }
+            return token;
+        });
+        when(refreshTokenRepository.revokeIfActive(anyString(), any())).thenAnswer(invocation -> {
+            StoredToken token = refreshTokens.get(invocation.<String>getArgument(0));
+            LocalDateTime now = invocation.getArgument(1);
+            if (token == null || token.revoked || !token.expiresAt.isAfter(now)) {
+                return Optional.empty();
+            }
+            token.revoked = true;
+            return Optional.of(token.userId);
+        });
+        when(refreshTokenRepository.findStateByTokenHash(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(refreshTokens.get(invocation.<String>getArgument(0))).map(AuthServiceTest::state));
+        when(refreshTokenRepository.revokeAllByUserId(anyLong(), any())).thenAnswer(invocation -> {
+            long userId = invocation.getArgument(0);
+            int revoked = 0;
+            for (StoredToken token : refreshTokens.values()) {
+                if (token.userId == userId && !token.revoked) {
+                    token.revoked = true;
+                    revoked++;
+                }
+            }
+            return revoked;
+        });
+
+        authService = new AuthService(userRepository, mock(PasswordEncoder.class), refreshTokenRepository, jwtUtil,
+                mock(AuthenticationManager.class), mock(OtpService.class), mock(TokenVersionService.class),
+                mock(LoginAttemptService.class), mock(LoginActivityRecorder.class), mock(UserCache.class),
+                registeredEmailFilter);
+    }
+
+    @Test
+    void registeringAnotherCapitalizationOfARegisteredEmailIsRejected() {
+        when(registeredEmailFilter.mightExist(anyString())).thenReturn(true);
+        when(userRepository.existsByNormalizedEmail("ada@example.com")).thenReturn(true);
+        RegisterRequestDTO request = RegisterRequestDTO.builder()
+                .firstName("Ada")
+                .lastName("Lovelace")
+                .email("Ada@Example.com")
+                .password("Secret#123")
+                .build();
+
+        assertThatThrownBy(() -> authService.register(request)).isInstanceOf(EmailAlreadyExistsException.class);
+        verify(userRepository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    void refreshRotatesToANewTokenAndRevokesTheOldOne() {
+        String first = issue(LocalDateTime.now().plusDays(7));
+
+        AuthResponseDTO response = authService.refreshAccessToken(first);
+
+        assertThat(response.getRefreshToken()).isNotEqualTo(first);
+        assertThat(JwtUtil.tokenUse(jwtUtil.extractAllClaims(response.getAccessToken())))
+                .isEqualTo(JwtUtil.ACCESS_TOKEN);
+        assertThat(stored(first).revoked).isTrue();
+        assertThat(stored(response.getRefreshToken()).revoked).isFalse();
+    }
+
+    @Test
+    void reusingARotatedTokenRevokesTheWholeFamily() {
+        String first = issue(LocalDateTime.now().plusDays(7));
+        String otherDevice = issue(LocalDateTime.now().plusDays(7));
+        String second = authService.refreshAccessToken(first).getRefreshToken();
+
+        assertThatThrownBy(() -> authService.refreshAccessToken(first))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessage("Refresh token has been revoked");
+
+        assertThat(stored(second).revoked).isTrue();
+        assertThat(stored(otherDevice).revoked).isTrue();
+        assertThatThrownBy(() -> authService.refreshAccessToken(second)).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    void expiredTokenIsRejectedWithoutRevokingTheFamily() {
+        String expired = issue(LocalDateTime.now().minusMinutes(1));
+        String active = issue(LocalDateTime.now().plusDays(7));
+
+        assertThatThrownBy(() -> authService.refreshAccessToken(expired)).isInstanceOf(TokenExpiredException.class);
+
+        assertThat(stored(active).revoked).isFalse();
+    }
+
+    @Test
+    void unknownAndBlankTokensAreInvalid() {
+        assertThatThrownBy(() -> authService.refreshAccessToken("not-a-token"))
+                .isInstanceOf(InvalidTokenException.class);
+        assertThatThrownBy(() -> authService.refreshAccessToken(" ")).isInstanceOf(InvalidTokenException.class);
+    }
+
+    @Test
+    void tokenIssuedBeforeARevokeAllIsRejected() {
+        String beforeRevokeAll = issue(LocalDateTime.now().plusDays(7));
+        user.setTokenVersion(1);
+
+        assertThatThrownBy(() -> authService.refreshAccessToken(beforeRevokeAll))
+                .isInstanceOf(InvalidTokenException.class)
+                .hasMessage("Refresh token has been revoked");
+    }
+
+    private String issue(LocalDateTime expiresAt) {
+        String token = jwtUtil.generateRefreshToken(new CustomUserDetails(user));
+        refreshTokens.put(TokenHasher.sha256Hex(token), new StoredToken(USER_ID, expiresAt));
+        return token;
+    }
+
+    private StoredToken stored(String token) {
+        return refreshTokens.get(TokenHasher.sha256Hex(token));
+    }
+
+    private static RefreshTokenRepository.RefreshTokenState state(StoredToken token) {
+        return new RefreshTokenRepository.RefreshTokenState() {
+            @Override
+            public Long getUserId() {
+                return token.userId;
+            }
+
+            @Override
+            public Boolean getRevoked() {
+                return token.revoked;
+            }
+
+            @Override
+            public LocalDateTime getExpiresAt() {
+                return token.expiresAt;
+            }
+        };
+    }
+}
@@ -0,0 +1,128 @@
+package com.caspercodes.bankingapi.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BalanceProjectionTest {
+
+    private static final long OWNER = 7;
+
+    private static final long CLEARING = 1;
+
+    private static final long ALICE = 2;
+
+    private static final long BOB = 3;
+
+    private static final long FROZEN = 4;
+
+    private static final long DOLLARS = 5;
+
+    private BalanceProjection projection() {
+        BalanceProjection projection = new BalanceProjection(1);
+        projection.addAccount(CLEARING, LedgerPoster.SYSTEM_OWNER, "NGN", true, true, 0, 0);
+        projection.addAccount(ALICE, OWNER, "NGN", true, false, 10_000, 3);
+        projection.addAccount(BOB, OWNER + 1, "NGN", true, false, 0, 0);
+        projection.addAccount(FROZEN, OWNER, "NGN", false, false, 10_000, 0);
+        projection.addAccount(DOLLARS, OWNER, "USD", true, false, 10_000, 0);
+        return projection;
+    }
+
+    @Test
+    void eachPostingSeesTheBalancesLeftByTheOnesBeforeIt() {
+        BalanceProjection projection = projection();
+
+        projection.apply(List.of(
+                transfer(OWNER, ALICE, BOB, 6_000),
+                transfer(OWNER, ALICE, BOB, 6_000),
+                transfer(OWNER, ALICE, BOB, 4_000)));
+
+        assertThat(projection.result(0)).isEqualTo(BalanceProjection.POSTED);
+        assertThat(projection.result(1)).isEqualTo(BalanceProjection.INSUFFICIENT_FUNDS);
+        assertThat(projection.result(2)).isEqualTo(BalanceProjection.POSTED);
+        assertThat(projection.fromBalanceAfter(2)).isZero();
+        assertThat(projection.fromSequence(2)).isEqualTo(5);
+        assertThat(projection.toBalanceAfter(2)).isEqualTo(10_000);
+        assertThat(projection.toSequence(2)).isEqualTo(2);
+        assertThat(projection.balance(ALICE)).isZero();
+        assertThat(projection.sequence(ALICE)).isEqualTo(5);
+    }
+
+    @Test
+    void rejectsWithTheFirstFailingRule() {
+        BalanceProjection projection = projection();
+
+        projection.apply(List.of(
+                transfer(OWNER, ALICE, 99, 1),
+                transfer(OWNER, BOB, ALICE, 1),
+                transfer(OWNER, FROZEN, ALICE, 1),
+                transfer(OWNER, ALICE, FROZEN, 1),
+                transfer(OWNER, DOLLARS, ALICE, 1),
+                new LedgerPoster.Posting(OWNER, ALICE, BOB, 1, "USD", null)));
+
+        assertThat(List.of(projection.result(0), projection.result(1), projection.result(2),
+                projection.result(3), projection.result(4), projection.result(5)))
+                .containsExactly(BalanceProjection.ACCOUNT_NOT_FOUND, BalanceProjection.NOT_OWNER,
+                        BalanceProjection.INACTIVE, BalanceProjection.INACTIVE,
+                        BalanceProjection.CURRENCY_MISMATCH, BalanceProjection.CURRENCY_MISMATCH);
+        assertThat(projection.balance(ALICE)).isEqualTo(10_000);
+        assertThat(projection.sequence(ALICE)).isEqualTo(3);
+    }
+
+    @Test
+    void clearingAccountFundsCustomersByGoingNegative() {
+        BalanceProjection projection = projection();
+
+        projection.apply(List.of(transfer(LedgerPoster.SYSTEM_OWNER, CLEARING, BOB, 50_000)));
+
+        assertThat(projection.result(0)).isEqualTo(BalanceProjection.POSTED);
+        assertThat(projection.balance(CLEARING)).isEqualTo(-50_000);
+        assertThat(projection.balance(BOB)).isEqualTo(50_000);
+    }
+
+    @Test
+    void customersCannotDebitTheClearingAccount() {
+        BalanceProjection projection = projection();
+
+        projection.apply(List.of(transfer(OWNER, CLEARING, ALICE, 1)));
+
+        assertThat(projection.result(0)).isEqualTo(BalanceProjection.NOT_OWNER);
+    }
+
+    @Test
+    void rejectsBalancesLeavingTheLongRange() {
+        BalanceProjection projection = new BalanceProjection(2);
+        projection.addAccount(CLEARING, LedgerPoster.SYSTEM_OWNER, "NGN", true, true, Long.MIN_VALUE + 10, 0);
+        projection.addAccount(ALICE, OWNER, "NGN", true, false, Long.MAX_VALUE - 10, 0);
+        projection.addAccount(BOB, OWNER, "NGN", true, false, 0, 0);
+
+        projection.apply(List.of(
+                transfer(LedgerPoster.SYSTEM_OWNER, CLEARING, BOB, 11),
+                transfer(OWNER, BOB, ALICE, 0),
+                transfer(LedgerPoster.SYSTEM_OWNER, CLEARING, ALICE, 10)));
+
+        assertThat(projection.result(0)).isEqualTo(BalanceProjection.OVERFLOW);
+        assertThat(projection.result(1)).isEqualTo(BalanceProjection.POSTED);
+        assertThat(projection.result(2)).isEqualTo(BalanceProjection.POSTED);
+        assertThat(projection.balance(ALICE)).isEqualTo(Long.MAX_VALUE);
+        assertThat(projection.balance(CLEARING)).isEqualTo(Long.MIN_VALUE);
+    }
+
+    @Test
+    void clearedProjectionCanBeReused() {
+        BalanceProjection projection = projection();
+        projection.clear();
+
+        assertThatThrownBy(() -> projection.balance(ALICE)).isInstanceOf(IllegalArgumentException.class);
+
+        projection.addAccount(ALICE, OWNER, "NGN", true, false, 5, 0);
+        assertThat(projection.balance(ALICE)).isEqualTo(5);
+    }
+
+    private static LedgerPoster.Posting transfer(long ownerId, long fromId, long toId, long amount) {
+        return new LedgerPoster.Posting(ownerId, fromId, toId, amount, "NGN", null);
+    }
+}
@@ -0,0 +1,193 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.CustomerImportResultDTO;
+import com.caspercodes.bankingapi.exception.InvalidImportException;
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.repository.UserRepository;
+import com.caspercodes.bankingapi.security.BoundedPasswordEncoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.atLeastOnce;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CustomerOnboardingServiceTest {
+
+    private static final String CSV_HEADER = "firstName,lastName,email,password,phoneNumber\n";
+
+    private UserRepository userRepository;
+
+    private RegisteredEmailFilter registeredEmailFilter;
+
+    private CustomerOnboardingService service;
+
+    @BeforeEach
+    void setUp() {
+        userRepository = mock(UserRepository.class);
+        registeredEmailFilter = mock(RegisteredEmailFilter.class);
+        BoundedPasswordEncoder passwordEncoder = mock(BoundedPasswordEncoder.class);
+        when(passwordEncoder.encodeAsync(any())).thenAnswer(invocation ->
+                CompletableFuture.completedFuture("hash:" + invocation.getArgument(0)));
+        when(passwordEncoder.getPoolSize()).thenReturn(4);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        service = new CustomerOnboardingService(userRepository, passwordEncoder,
+                new TransactionTemplate(transactionManager),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                new ObjectMapper(), registeredEmailFilter, 2, 2, 1000);
+    }
+
+    @Test
+    void hashConcurrencyLeavesPartOfTheHashingPoolToLogins() {
+        assertThat(CustomerOnboardingService.hashConcurrency(0, 8)).isEqualTo(4);
+        assertThat(CustomerOnboardingService.hashConcurrency(0, 1)).isEqualTo(1);
+        assertThat(CustomerOnboardingService.hashConcurrency(3, 8)).isEqualTo(3);
+        assertThatThrownBy(() -> CustomerOnboardingService.hashConcurrency(8, 8))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void importsCsvWithQuotedFieldsAndByteOrderMark() {
+        CustomerImportResultDTO result = importCsv("\uFEFF" + CSV_HEADER
+                + "\"Ada, Jr\",Lovelace,ada@example.com,Secret#123,08012345678\n"
+                + "Alan,\"Tu\"\"ring\",alan@example.com,Secret#123,\n");
+
+        assertThat(result.getTotal()).isEqualTo(2);
+        assertThat(result.getImported()).isEqualTo(2);
+        assertThat(result.getFailed()).isZero();
+
+        List<User> saved = savedUsers();
+        assertThat(saved).extracting(User::getFirstName).containsExactly("Ada, Jr", "Alan");
+        assertThat(saved).extracting(User::getLastName).containsExactly("Lovelace", "Tu\"ring");
+        assertThat(saved).extracting(User::getPassword).containsOnly("hash:Secret#123");
+        assertThat(saved.get(1).getPhoneNumber()).isNull();
+        verify(registeredEmailFilter).add("ada@example.com");
+    }
+
+    @Test
+    void csvHeaderMissingRequiredColumnIsRejected() {
+        assertThatThrownBy(() -> importCsv("firstName,lastName,email\nAda,Lovelace,ada@example.com\n"))
+                .isInstanceOf(InvalidImportException.class)
+                .hasMessageContaining("password");
+    }
+
+    @Test
+    void reportsParseAndValidationErrorsWithTheirLineNumbers() {
+        CustomerImportResultDTO result = importNdjson("""
+                {"firstName":"Ada","lastName":"Lovelace","email":"ada@example.com","password":"Secret#123"}
+                {"firstName":"Alan",
+
+                {"firstName":"G","lastName":"Hopper","email":"not-an-email","password":"Secret#123"}
+                """);
+
+        assertThat(result.getTotal()).isEqualTo(3);
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getFailed()).isEqualTo(2);
+        assertThat(result.getErrors()).extracting(CustomerImportResultDTO.RowError::getLine).containsExactly(2L, 4L);
+        assertThat(result.getErrors().get(0).getMessage()).startsWith("Malformed JSON");
+        assertThat(result.getErrors().get(1).getMessage())
+                .contains("Email must be valid")
+                .contains("First name must be between 2 and 150 characters");
+    }
+
+    @Test
+    void duplicateEmailsInFileAreMatchedIgnoringCase() {
+        CustomerImportResultDTO result = importCsv(CSV_HEADER
+                + "Ada,Lovelace,ada@example.com,Secret#123,\n"
+                + "Ada,Lovelace,ADA@Example.com,Secret#123,\n");
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getLine()).isEqualTo(3);
+            assertThat(error.getMessage()).isEqualTo("Duplicate email in file");
+        });
+    }
+
+    @Test
+    void registeredEmailsAreMatchedIgnoringCase() {
+        when(userRepository.findExistingNormalizedEmails(anyCollection())).thenAnswer(invocation -> {
+            Collection<String> emails = invocation.getArgument(0);
+            assertThat(emails).containsExactlyInAnyOrder("ada@example.com", "alan@example.com");
+            return List.of("ada@example.com");
+        });
+
+        CustomerImportResultDTO result = importCsv(CSV_HEADER
+                + "Ada,Lovelace,Ada@Example.com,Secret#123,\n"
+                + "Alan,Turing,alan@example.com,Secret#123,\n");
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getEmail()).isEqualTo("Ada@Example.com");
+            assertThat(error.getMessage()).isEqualTo("Email already exists");
+        });
+        assertThat(savedUsers()).extracting(User::getEmail).containsExactly("alan@example.com");
+    }
+
+    @Test
+    void failedBatchFallsBackToRowByRowInserts() {
+        when(userRepository.saveAll(anyCollection())).thenThrow(new DataIntegrityViolationException("batch failed"));
+        when(userRepository.save(any(User.class))).thenAnswer(invocation -> {
+            User user = invocation.getArgument(0);
+            if (user.getEmail().equals("alan@example.com")) {
+                throw new DataIntegrityViolationException("duplicate key");
+            }
+            return user;
+        });
+
+        CustomerImportResultDTO result = importCsv(CSV_HEADER
+                + "Ada,Lovelace,ada@example.com,Secret#123,\n"
+                + "Alan,Turing,alan@example.com,Secret#123,\n");
+
+        assertThat(result.getImported()).isEqualTo(1);
+        assertThat(result.getErrors()).singleElement().satisfies(error -> {
+            assertThat(error.getLine()).isEqualTo(3);
+            assertThat(error.getMessage()).startsWith("Rejected by the database");
+        });
+        verify(registeredEmailFilter).add("ada@example.com");
+        verify(registeredEmailFilter, never()).add("alan@example.com");
+    }
+
+    private CustomerImportResultDTO importCsv(String content) {
+        return service.importCustomers(stream(content), CustomerOnboardingService.Format.CSV);
+    }
+
+    private CustomerImportResultDTO importNdjson(String content) {
+        return service.importCustomers(stream(content), CustomerOnboardingService.Format.NDJSON);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<User> savedUsers() {
+        ArgumentCaptor<Iterable<User>> captor = ArgumentCaptor.forClass(Iterable.class);
+        verify(userRepository, atLeastOnce()).saveAll(captor.capture());
+        List<User> users = new ArrayList<>();
+        captor.getAllValues().forEach(batch -> batch.forEach(users::add));
+        return users;
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
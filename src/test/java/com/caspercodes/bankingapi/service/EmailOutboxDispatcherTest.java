@@ -0,0 +1,118 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.model.EmailOutboxMessage;
+import com.caspercodes.bankingapi.repository.EmailOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class EmailOutboxDispatcherTest {
+
+    private EmailOutboxRepository outboxRepository;
+
+    private EmailService emailService;
+
+    private SmtpTransportPool transportPool;
+
+    private Transport transport;
+
+    private EmailOutboxDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        outboxRepository = mock(EmailOutboxRepository.class);
+        emailService = mock(EmailService.class);
+        transportPool = mock(SmtpTransportPool.class);
+        transport = mock(Transport.class);
+        when(transportPool.getSize()).thenReturn(1);
+        when(transportPool.borrow()).thenReturn(transport);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+
+        dispatcher = new EmailOutboxDispatcher(outboxRepository, emailService, transportPool,
+                new TransactionTemplate(transactionManager), Runnable::run, new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(dispatcher, "batchSize", 50);
+        ReflectionTestUtils.setField(dispatcher, "maxBatchesPerPoll", 20);
+        ReflectionTestUtils.setField(dispatcher, "maxAttempts", 8);
+        ReflectionTestUtils.setField(dispatcher, "backoffSeconds", 5L);
+        ReflectionTestUtils.setField(dispatcher, "leaseSeconds", 120L);
+    }
+
+    @Test
+    void expiredOtpIsDroppedWithItsCodeInsteadOfSent() throws Exception {
+        EmailOutboxMessage stale = otp(1L, LocalDateTime.now().minusMinutes(6), 5);
+        when(outboxRepository.lockDueBatch(any(), anyInt())).thenReturn(List.of(stale), List.of());
+
+        dispatcher.dispatch();
+
+        assertThat(stale.getStatus()).isEqualTo(EmailOutboxMessage.Status.FAILED);
+        assertThat(stale.getPayload()).isNull();
+        assertThat(stale.getAttempts()).isZero();
+        verify(emailService, never()).compose(any(), any());
+        verify(transportPool, never()).borrow();
+    }
+
+    @Test
+    void liveOtpIsSentAndDeleted() throws Exception {
+        EmailOutboxMessage live = otp(2L, LocalDateTime.now().minusMinutes(1), 5);
+        when(outboxRepository.lockDueBatch(any(), anyInt())).thenReturn(List.of(live), List.of());
+        when(emailService.compose(eq(live), any())).thenReturn(mock(MimeMessage.class));
+
+        dispatcher.dispatch();
+
+        verify(transport).sendMessage(any(), any());
+        verify(outboxRepository).deleteAllByIdInBatch(List.of(2L));
+        assertThat(live.getStatus()).isEqualTo(EmailOutboxMessage.Status.PENDING);
+    }
+
+    @Test
+    void everyPollSweepsExpiredOtpsWaitingOnBackoff() {
+        when(outboxRepository.lockDueBatch(any(), anyInt())).thenReturn(List.of());
+
+        dispatcher.dispatch();
+
+        verify(outboxRepository).expireStaleOtps(any(), anyString());
+    }
+
+    @Test
+    void welcomeEmailsNeverExpire() {
+        EmailOutboxMessage welcome = EmailOutboxMessage.builder()
+                .type(EmailOutboxMessage.EmailType.WELCOME)
+                .createdAt(LocalDateTime.now().minusDays(3))
+                .build();
+
+        assertThat(welcome.isExpired(LocalDateTime.now())).isFalse();
+    }
+
+    private static EmailOutboxMessage otp(long id, LocalDateTime createdAt, int expiryMinutes) {
+        return EmailOutboxMessage.builder()
+                .id(id)
+                .recipient("ada@example.com")
+                .type(EmailOutboxMessage.EmailType.LOGIN_OTP)
+                .payload("123456")
+                .expiryMinutes(expiryMinutes)
+                .nextAttemptAt(createdAt)
+                .createdAt(createdAt)
+                .build();
+    }
+}
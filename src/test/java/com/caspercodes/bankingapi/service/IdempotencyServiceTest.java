@@ -0,0 +1,167 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.config.EmbeddedRedis;
+import com.caspercodes.bankingapi.model.IdempotencyRecord;
+import com.caspercodes.bankingapi.repository.IdempotencyRecordRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.RedisTemplate;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/*
+  Claims on a real Redis, with idempotency_records kept in memory under the same conditions as the SQL
+ */
+class IdempotencyServiceTest {
+
+    private static final String KEY = IdempotencyService.keyHash("user:ada@example.com", "key-1");
+
+    private static final IdempotencyService.StoredResponse CREATED =
+            new IdempotencyService.StoredResponse(201, "application/json", "{\"reference\":\"T1\"}");
+
+    private final Map<String, IdempotencyRecord> records = new HashMap<>();
+
+    private IdempotencyRecordRepository recordRepository;
+
+    private IdempotencyService idempotencyService;
+
+    @BeforeEach
+    void setUp() {
+        EmbeddedRedis.flush();
+        recordRepository = mock(IdempotencyRecordRepository.class);
+        when(recordRepository.claim(anyString(), anyString(), any(), any())).thenAnswer(invocation -> {
+            String keyHash = invocation.getArgument(0);
+            LocalDateTime now = invocation.getArgument(2);
+            IdempotencyRecord existing = records.get(keyHash);
+            if (existing != null && !existing.getExpiresAt().isBefore(now)) {
+                return 0;
+            }
+            records.put(keyHash, IdempotencyRecord.builder()
+                    .keyHash(keyHash)
+                    .fingerprint(invocation.getArgument(1))
+                    .state(IdempotencyRecord.State.IN_PROGRESS)
+                    .createdAt(now)
+                    .expiresAt(invocation.getArgument(3))
+                    .build());
+            return 1;
+        });
+        when(recordRepository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(records.get(invocation.<String>getArgument(0))));
+        when(recordRepository.complete(anyString(), anyInt(), any(), any(), any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = records.get(invocation.<String>getArgument(0));
+            record.setState(IdempotencyRecord.State.COMPLETED);
+            record.setResponseStatus(invocation.getArgument(1));
+            record.setResponseContentType(invocation.getArgument(2));
+            record.setResponseBody(invocation.getArgument(3));
+            record.setExpiresAt(invocation.getArgument(4));
+            return 1;
+        });
+        when(recordRepository.release(anyString())).thenAnswer(invocation -> {
+            IdempotencyRecord record = records.get(invocation.<String>getArgument(0));
+            if (record == null || record.getState() != IdempotencyRecord.State.IN_PROGRESS) {
+                return 0;
+            }
+            records.remove(record.getKeyHash());
+            return 1;
+        });
+
+        idempotencyService = service(EmbeddedRedis.otpRedisTemplate());
+    }
+
+    @Test
+    void firstClaimRunsAndRetriesWaitThenReplay() {
+        assertThat(claim("fp-1", false).status()).isEqualTo(IdempotencyService.Status.ACQUIRED);
+        assertThat(claim("fp-1", false).status()).isEqualTo(IdempotencyService.Status.IN_PROGRESS);
+
+        idempotencyService.complete(KEY, "fp-1", CREATED, false);
+
+        IdempotencyService.Claim replay = claim("fp-1", false);
+        assertThat(replay.status()).isEqualTo(IdempotencyService.Status.COMPLETED);
+        assertThat(replay.response()).isEqualTo(CREATED);
+    }
+
+    @Test
+    void sameKeyWithADifferentRequestIsAMismatch() {
+        claim("fp-1", false);
+        assertThat(claim("fp-2", false).status()).isEqualTo(IdempotencyService.Status.MISMATCH);
+
+        idempotencyService.complete(KEY, "fp-1", CREATED, false);
+        assertThat(claim("fp-2", false).status()).isEqualTo(IdempotencyService.Status.MISMATCH);
+    }
+
+    @Test
+    void releasedKeysCanBeClaimedAgain() {
+        claim("fp-1", true);
+
+        idempotencyService.release(KEY, true);
+
+        assertThat(records).isEmpty();
+        assertThat(claim("fp-1", true).status()).isEqualTo(IdempotencyService.Status.ACQUIRED);
+    }
+
+    @Test
+    void durableKeyLostByRedisIsReplayedFromPostgresAndCachedAgain() {
+        claim("fp-1", true);
+        idempotencyService.complete(KEY, "fp-1", CREATED, true);
+        EmbeddedRedis.flush();
+
+        IdempotencyService.Claim replay = claim("fp-1", true);
+
+        assertThat(replay.status()).isEqualTo(IdempotencyService.Status.COMPLETED);
+        assertThat(replay.response()).isEqualTo(CREATED);
+        assertThat(EmbeddedRedis.otpRedisTemplate().hasKey("idempotency:" + KEY)).isTrue();
+        assertThat(claim("fp-2", true).status()).isEqualTo(IdempotencyService.Status.MISMATCH);
+    }
+
+    @Test
+    void durableKeyStillClaimedInPostgresIsInProgressAndFreesRedis() {
+        claim("fp-1", true);
+        EmbeddedRedis.flush();
+
+        assertThat(claim("fp-1", true).status()).isEqualTo(IdempotencyService.Status.IN_PROGRESS);
+        assertThat(EmbeddedRedis.otpRedisTemplate().hasKey("idempotency:" + KEY)).isFalse();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void withoutRedisPlainKeysRunUnguardedAndDurableKeysUsePostgres() {
+        RedisTemplate<String, String> redis = mock(RedisTemplate.class);
+        when(redis.opsForValue()).thenThrow(new RedisConnectionFailureException("down"));
+        idempotencyService = service(redis);
+
+        assertThat(claim("fp-1", false).status()).isEqualTo(IdempotencyService.Status.UNAVAILABLE);
+        assertThat(claim("fp-1", true).status()).isEqualTo(IdempotencyService.Status.ACQUIRED);
+        assertThat(claim("fp-1", true).status()).isEqualTo(IdempotencyService.Status.IN_PROGRESS);
+    }
+
+    @Test
+    void durableClaimFailsWhenPostgresIsDownAndGivesTheRedisClaimBack() {
+        when(recordRepository.claim(anyString(), anyString(), any(), any()))
+                .thenThrow(new DataAccessResourceFailureException("down"));
+
+        assertThatThrownBy(() -> claim("fp-1", true)).isInstanceOf(DataAccessResourceFailureException.class);
+        assertThat(EmbeddedRedis.otpRedisTemplate().hasKey("idempotency:" + KEY)).isFalse();
+    }
+
+    private IdempotencyService.Claim claim(String fingerprint, boolean durable) {
+        return idempotencyService.claim(KEY, fingerprint, durable);
+    }
+
+    private IdempotencyService service(RedisTemplate<String, String> redis) {
+        return new IdempotencyService(redis, recordRepository, new ObjectMapper().findAndRegisterModules(), 24, 60);
+    }
+}
@@ -0,0 +1,90 @@
+package com.caspercodes.bankingapi.service;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Validation and posting loop of a transfer group, no database. Run with the gc profiler,
+  gc.alloc.rate.norm has to stay flat as the group grows, i.e. no allocation per posting:
+  mvn test-compile exec:exec -Pjmh -Djmh.args="LedgerPostingBenchmark -prof gc"
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LedgerPostingBenchmark {
+
+    private static final int ACCOUNTS = 1_000;
+
+    private static final long OWNER = 1;
+
+    @Param({"1000", "10000"})
+    private int postings;
+
+    private final BalanceProjection projection = new BalanceProjection(ACCOUNTS);
+
+    private List<LedgerPoster.Posting> group;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(42);
+        group = new ArrayList<>(postings);
+        for (int i = 0; i < postings; i++) {
+            long from = 1 + random.nextInt(ACCOUNTS);
+            long to = 1 + (from + random.nextInt(ACCOUNTS - 1)) % ACCOUNTS;
+            // Amounts up to 500.00 against 1000.00 balances, so some transfers are rejected for funds
+            group.add(new LedgerPoster.Posting(OWNER, from, to, 1 + random.nextInt(50_000), "EUR", null));
+        }
+    }
+
+    @Benchmark
+    public long validateAndApply() {
+        projection.clear();
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            projection.addAccount(id, OWNER, "EUR", true, false, 100_000, 0);
+        }
+        projection.apply(group);
+        return projection.balance(1) + projection.result(postings - 1);
+    }
+
+    // The previous approach for comparison: BigDecimal balances in a boxed map
+    @Benchmark
+    public long bigDecimalBaseline() {
+        Map<Long, BigDecimal> balances = new HashMap<>(ACCOUNTS * 2);
+        for (long id = 1; id <= ACCOUNTS; id++) {
+            balances.put(id, BigDecimal.valueOf(100_000, 2));
+        }
+        long rejected = 0;
+        for (LedgerPoster.Posting posting : group) {
+            BigDecimal amount = BigDecimal.valueOf(posting.amount(), 2);
+            BigDecimal from = balances.get(posting.fromId());
+            if (from.compareTo(amount) < 0) {
+                rejected++;
+                continue;
+            }
+            balances.put(posting.fromId(), from.subtract(amount));
+            balances.put(posting.toId(), balances.get(posting.toId()).add(amount));
+        }
+        return rejected;
+    }
+}
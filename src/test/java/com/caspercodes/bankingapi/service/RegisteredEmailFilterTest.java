@@ -0,0 +1,85 @@
+package com.caspercodes.bankingapi.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.ResultSet;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RegisteredEmailFilterTest {
+
+    private JdbcTemplate jdbcTemplate;
+
+    private RegisteredEmailFilter filter;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        filter = new RegisteredEmailFilter(jdbcTemplate, new TransactionTemplate(transactionManager), 1_000, 0.001, 100);
+    }
+
+    @Test
+    void everyEmailMightExistUntilTheLoadFinishes() {
+        assertThat(filter.mightExist("ada@example.com")).isTrue();
+        assertThat(filter.mightExist("grace@example.com")).isTrue();
+    }
+
+    @Test
+    void loadedEmailsAreMatchedCaseInsensitively() throws Exception {
+        rows(List.of("Ada@Example.com", "grace@example.com"));
+
+        filter.load();
+
+        assertThat(filter.mightExist(" ada@example.COM")).isTrue();
+        assertThat(filter.mightExist("GRACE@example.com")).isTrue();
+        assertThat(filter.mightExist("alan@example.com")).isFalse();
+    }
+
+    @Test
+    void emailsAddedAfterTheLoadAreFound() throws Exception {
+        rows(List.of());
+        filter.load();
+
+        filter.add("Alan@Example.com");
+
+        assertThat(filter.mightExist("alan@example.com")).isTrue();
+    }
+
+    @Test
+    void failedLoadKeepsAskingTheDatabase() {
+        doThrow(new QueryTimeoutException("timeout"))
+                .when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+
+        filter.load();
+
+        assertThat(filter.mightExist("alan@example.com")).isTrue();
+    }
+
+    private void rows(List<String> emails) throws Exception {
+        doAnswer(invocation -> {
+            RowCallbackHandler handler = invocation.getArgument(1);
+            for (String email : emails) {
+                ResultSet row = mock(ResultSet.class);
+                when(row.getString(1)).thenReturn(email);
+                handler.processRow(row);
+            }
+            return null;
+        }).when(jdbcTemplate).query(any(PreparedStatementCreator.class), any(RowCallbackHandler.class));
+    }
+}
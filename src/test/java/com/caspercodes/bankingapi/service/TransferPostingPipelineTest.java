@@ -0,0 +1,166 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.TransferResponseDTO;
+import com.caspercodes.bankingapi.exception.InsufficientFundsException;
+import com.caspercodes.bankingapi.exception.TransferOutcomeUnknownException;
+import com.caspercodes.bankingapi.exception.TransferUnavailableException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.TransactionSystemException;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransferPostingPipelineTest {
+
+    private final LedgerPoster ledgerPoster = mock(LedgerPoster.class);
+
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+
+    private final TransactionStatus transactionStatus = mock(TransactionStatus.class);
+
+    private TransferPostingPipeline pipeline;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (pipeline != null) {
+            pipeline.destroy();
+        }
+    }
+
+    @Test
+    void eachCallerGetsItsOwnOutcome() {
+        when(ledgerPoster.post(anyList())).thenAnswer(invocation -> {
+            List<LedgerPoster.Posting> postings = invocation.getArgument(0);
+            return postings.stream()
+                    .map(posting -> posting.amount() > 100
+                            ? new LedgerPoster.Outcome(null, new InsufficientFundsException("Insufficient funds"))
+                            : new LedgerPoster.Outcome(TransferResponseDTO.builder().build(), null))
+                    .toList();
+        });
+        pipeline = start(5_000);
+
+        assertThat(pipeline.post(posting(1))).isPresent();
+        assertThatThrownBy(() -> pipeline.post(posting(500))).isInstanceOf(InsufficientFundsException.class);
+    }
+
+    @Test
+    void drainerErrorStopsThePipelineInsteadOfHangingCallers() throws Exception {
+        when(ledgerPoster.post(anyList())).thenThrow(new StackOverflowError("boom"));
+        pipeline = start(5_000);
+
+        CompletableFuture<Optional<TransferResponseDTO>> caller = CompletableFuture.supplyAsync(() -> pipeline.post(posting(1)));
+
+        assertThat(caller).failsWithin(5, TimeUnit.SECONDS);
+        awaitStopped();
+        assertThat(pipeline.post(posting(1))).isEmpty();
+    }
+
+    @Test
+    void transferNotPickedUpInTimeIsWithdrawnWithoutPosting() throws Exception {
+        CountDownLatch firstBatchStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstBatch = new CountDownLatch(1);
+        LedgerPoster.Posting slow = posting(1);
+        LedgerPoster.Posting withdrawn = posting(2);
+        when(ledgerPoster.post(List.of(slow))).thenAnswer(invocation -> {
+            firstBatchStarted.countDown();
+            releaseFirstBatch.await();
+            return List.of(new LedgerPoster.Outcome(TransferResponseDTO.builder().build(), null));
+        });
+        pipeline = start(100);
+
+        CompletableFuture<Optional<TransferResponseDTO>> first = CompletableFuture.supplyAsync(() -> pipeline.post(slow));
+        assertThat(firstBatchStarted.await(5, TimeUnit.SECONDS)).isTrue();
+
+        assertThatThrownBy(() -> pipeline.post(withdrawn)).isInstanceOf(TransferUnavailableException.class);
+
+        // The first transfer was already being posted, so its caller keeps waiting for the real outcome
+        releaseFirstBatch.countDown();
+        assertThat(first.get(5, TimeUnit.SECONDS)).isPresent();
+        pipeline.destroy();
+        verify(ledgerPoster, never()).post(List.of(withdrawn));
+    }
+
+    @Test
+    void groupFailingBeforeItsCommitIsRetriedOneTransferAtATime() {
+        when(ledgerPoster.post(anyList()))
+                .thenReturn(List.of(new LedgerPoster.Outcome(TransferResponseDTO.builder().build(), null)));
+        doThrow(new DataIntegrityViolationException("duplicate key")).doNothing().when(transactionStatus).flush();
+        pipeline = start(5_000);
+
+        assertThat(pipeline.post(posting(1))).isPresent();
+        verify(ledgerPoster, times(2)).post(anyList());
+        verify(transactionManager).rollback(transactionStatus);
+    }
+
+    @Test
+    void failedCommitIsReportedAsUnknownAndNeverPostedAgain() {
+        when(ledgerPoster.post(anyList()))
+                .thenReturn(List.of(new LedgerPoster.Outcome(TransferResponseDTO.builder().build(), null)));
+        doThrow(new TransactionSystemException("connection reset during commit"))
+                .when(transactionManager).commit(transactionStatus);
+        pipeline = start(5_000);
+
+        assertThatThrownBy(() -> pipeline.post(posting(1))).isInstanceOf(TransferOutcomeUnknownException.class);
+        verify(ledgerPoster, times(1)).post(anyList());
+    }
+
+    @Test
+    void disabledPipelineLeavesPostingToTheCaller() {
+        pipeline = new TransferPostingPipeline(ledgerPoster, transactionTemplate(), new SimpleMeterRegistry(),
+                false, 200, 5, 100, 5_000, 10);
+        pipeline.start();
+
+        assertThat(pipeline.post(posting(1))).isEmpty();
+    }
+
+    private TransferPostingPipeline start(long awaitTimeoutMs) {
+        TransferPostingPipeline started = new TransferPostingPipeline(ledgerPoster, transactionTemplate(),
+                new SimpleMeterRegistry(), true, 200, 1, 100, awaitTimeoutMs, 10);
+        started.start();
+        return started;
+    }
+
+    // Probes until post() no longer queues
+    private void awaitStopped() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            try {
+                if (pipeline.post(posting(1)).isEmpty()) {
+                    return;
+                }
+            } catch (RuntimeException e) {
+                // Failed with the batch that stopped the drainer, or queued just before it stopped
+            }
+            Thread.sleep(10);
+        }
+    }
+
+    private TransactionTemplate transactionTemplate() {
+        when(transactionManager.getTransaction(any())).thenReturn(transactionStatus);
+        return new TransactionTemplate(transactionManager);
+    }
+
+    private static LedgerPoster.Posting posting(long amount) {
+        return new LedgerPoster.Posting(1, 2, 3, amount, "NGN", null);
+    }
+}
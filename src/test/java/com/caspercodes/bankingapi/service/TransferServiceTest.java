@@ -0,0 +1,232 @@
+package com.caspercodes.bankingapi.service;
+
+import com.caspercodes.bankingapi.dto.DepositRequestDTO;
+import com.caspercodes.bankingapi.dto.TransferRequestDTO;
+import com.caspercodes.bankingapi.dto.TransferResponseDTO;
+import com.caspercodes.bankingapi.exception.AccountNotFoundException;
+import com.caspercodes.bankingapi.exception.InsufficientFundsException;
+import com.caspercodes.bankingapi.exception.TransferRejectedException;
+import com.caspercodes.bankingapi.model.Account;
+import com.caspercodes.bankingapi.model.JournalEntry;
+import com.caspercodes.bankingapi.model.User;
+import com.caspercodes.bankingapi.repository.AccountRepository;
+import com.caspercodes.bankingapi.repository.BalanceCheckpointRepository;
+import com.caspercodes.bankingapi.repository.JournalEntryRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/*
+  TransferService with a real LedgerPoster and BalanceProjection over in-memory accounts.
+  Group commit is off, so transfers take the striped lock path
+ */
+class TransferServiceTest {
+
+    private static final String ALICE_EMAIL = "alice@example.com";
+
+    private static final long ALICE_ID = 10;
+
+    private static final long BOB_ID = 20;
+
+    private final Map<String, Account> accounts = new HashMap<>();
+
+    private AccountRepository accountRepository;
+
+    private AccountService accountService;
+
+    private JournalEntryRepository journalEntryRepository;
+
+    private TransferService transferService;
+
+    private long nextAccountId = 1;
+
+    @BeforeEach
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        accountService = mock(AccountService.class);
+        journalEntryRepository = mock(JournalEntryRepository.class);
+
+        when(accountService.ownerId(ALICE_EMAIL)).thenReturn(ALICE_ID);
+        when(accountRepository.findRefByAccountNumber(anyString())).thenAnswer(invocation ->
+                Optional.ofNullable(accounts.get(invocation.<String>getArgument(0))).map(TransferServiceTest::ref));
+        when(accountRepository.lockAllByIdInOrder(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return accounts.values().stream().filter(account -> ids.contains(account.getId())).toList();
+        });
+
+        LedgerPoster ledgerPoster = new LedgerPoster(accountRepository, journalEntryRepository,
+                mock(BalanceCheckpointRepository.class));
+        ReflectionTestUtils.setField(ledgerPoster, "checkpointInterval", 100);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenReturn(mock(TransactionStatus.class));
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+
+        TransferPostingPipeline pipeline = new TransferPostingPipeline(ledgerPoster, transactionTemplate,
+                new SimpleMeterRegistry(), false, 200, 5, 100, 1000, 10);
+        transferService = new TransferService(accountRepository, accountService, ledgerPoster, pipeline,
+                transactionTemplate, 16);
+    }
+
+    @Test
+    void transferPostsBothLegsAndMovesTheBalances() {
+        Account from = open("1000000001", ALICE_ID, "NGN", 50_000);
+        Account to = open("2000000002", BOB_ID, "NGN", 0);
+
+        TransferResponseDTO result = transferService.transfer(ALICE_EMAIL, transfer("1000000001", "2000000002", "125.50"));
+
+        assertThat(result.getAmount()).isEqualByComparingTo("125.50");
+        assertThat(result.getBalanceAfter()).isEqualByComparingTo("374.50");
+        assertThat(from.getBalance()).isEqualTo(37_450);
+        assertThat(to.getBalance()).isEqualTo(12_550);
+        assertThat(from.getPostingSequence()).isEqualTo(1);
+        assertThat(to.getPostingSequence()).isEqualTo(1);
+
+        List<JournalEntry> entries = savedEntries();
+        assertThat(entries).extracting(JournalEntry::getDirection)
+                .containsExactly(JournalEntry.Direction.DEBIT, JournalEntry.Direction.CREDIT);
+        assertThat(entries).extracting(JournalEntry::getAmount).containsOnly(12_550L);
+        assertThat(entries).extracting(JournalEntry::getTransferId).containsOnly(result.getTransferId());
+    }
+
+    @Test
+    void someoneElsesAccountIsReportedAsMissing() {
+        open("1000000001", BOB_ID, "NGN", 50_000);
+        open("2000000002", ALICE_ID, "NGN", 0);
+
+        assertThatThrownBy(() -> transferService.transfer(ALICE_EMAIL, transfer("1000000001", "2000000002", "1.00")))
+                .isInstanceOf(AccountNotFoundException.class);
+        verify(journalEntryRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    void insufficientFundsLeaveBothAccountsUntouched() {
+        Account from = open("1000000001", ALICE_ID, "NGN", 1_000);
+        Account to = open("2000000002", BOB_ID, "NGN", 0);
+
+        assertThatThrownBy(() -> transferService.transfer(ALICE_EMAIL, transfer("1000000001", "2000000002", "10.01")))
+                .isInstanceOf(InsufficientFundsException.class);
+        assertThat(from.getBalance()).isEqualTo(1_000);
+        assertThat(to.getBalance()).isZero();
+        verify(journalEntryRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    void currenciesMustMatch() {
+        open("1000000001", ALICE_ID, "NGN", 50_000);
+        open("2000000002", BOB_ID, "USD", 0);
+
+        assertThatThrownBy(() -> transferService.transfer(ALICE_EMAIL, transfer("1000000001", "2000000002", "1.00")))
+                .isInstanceOf(TransferRejectedException.class)
+                .hasMessageContaining("same currency");
+    }
+
+    @Test
+    void amountMustFitTheCurrency() {
+        open("1000000001", ALICE_ID, "JPY", 50_000);
+        open("2000000002", BOB_ID, "JPY", 0);
+
+        assertThatThrownBy(() -> transferService.transfer(ALICE_EMAIL, transfer("1000000001", "2000000002", "1.50")))
+                .isInstanceOf(TransferRejectedException.class)
+                .hasMessageContaining("JPY");
+    }
+
+    @Test
+    void sourceAndDestinationMustDiffer() {
+        assertThatThrownBy(() -> transferService.transfer(ALICE_EMAIL, transfer("1000000001", "1000000001", "1.00")))
+                .isInstanceOf(TransferRejectedException.class);
+    }
+
+    @Test
+    void depositOpensTheClearingAccountAndCreditsTheCustomer() {
+        Account customer = open("2000000002", BOB_ID, "NGN", 0);
+        doAnswer(invocation -> {
+            Account clearing = open(AccountService.clearingAccountNumber("NGN"), null, "NGN", 0);
+            clearing.setType(Account.Type.CLEARING);
+            return null;
+        }).when(accountService).openClearingAccount("NGN");
+
+        TransferResponseDTO result = transferService.deposit("admin@example.com", "2000000002",
+                DepositRequestDTO.builder().amount(new BigDecimal("250.00")).build());
+
+        assertThat(result.getFromAccountNumber()).isEqualTo("CLRNGN");
+        assertThat(result.getBalanceAfter()).isEqualByComparingTo("250.00");
+        assertThat(customer.getBalance()).isEqualTo(25_000);
+        assertThat(accounts.get("CLRNGN").getBalance()).isEqualTo(-25_000);
+    }
+
+    @Test
+    void customersCannotSpendFromTheClearingAccount() {
+        Account clearing = open(AccountService.clearingAccountNumber("NGN"), null, "NGN", -25_000);
+        clearing.setType(Account.Type.CLEARING);
+        open("2000000002", ALICE_ID, "NGN", 25_000);
+
+        assertThatThrownBy(() -> transferService.transfer(ALICE_EMAIL, transfer("CLRNGN", "2000000002", "1.00")))
+                .isInstanceOf(AccountNotFoundException.class);
+    }
+
+    private Account open(String accountNumber, Long ownerId, String currency, long balance) {
+        Account account = Account.builder()
+                .id(nextAccountId++)
+                .accountNumber(accountNumber)
+                .owner(ownerId != null ? User.builder().id(ownerId).build() : null)
+                .currency(currency)
+                .balance(balance)
+                .build();
+        accounts.put(accountNumber, account);
+        return account;
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<JournalEntry> savedEntries() {
+        ArgumentCaptor<List<JournalEntry>> captor = ArgumentCaptor.forClass(List.class);
+        verify(journalEntryRepository).saveAll(captor.capture());
+        return captor.getValue();
+    }
+
+    private static TransferRequestDTO transfer(String from, String to, String amount) {
+        return TransferRequestDTO.builder()
+                .fromAccountNumber(from)
+                .toAccountNumber(to)
+                .amount(new BigDecimal(amount))
+                .build();
+    }
+
+    private static AccountRepository.AccountRef ref(Account account) {
+        return new AccountRepository.AccountRef() {
+            @Override
+            public Long getId() {
+                return account.getId();
+            }
+
+            @Override
+            public String getCurrency() {
+                return account.getCurrency();
+            }
+        };
+    }
+}
@@ -0,0 +1,100 @@
+package com.caspercodes.bankingapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LongLongHashMapTest {
+
+    private static final long MISSING = Long.MIN_VALUE;
+
+    @Test
+    void putReturnsThePreviousValueOrMissing() {
+        LongLongHashMap map = new LongLongHashMap(4);
+
+        assertThat(map.put(7, 70, MISSING)).isEqualTo(MISSING);
+        assertThat(map.put(7, 71, MISSING)).isEqualTo(70);
+        assertThat(map.get(7, MISSING)).isEqualTo(71);
+        assertThat(map.get(8, MISSING)).isEqualTo(MISSING);
+        assertThat(map.size()).isEqualTo(1);
+    }
+
+    @Test
+    void zeroNegativeAndExtremeKeysAreOrdinaryKeys() {
+        LongLongHashMap map = new LongLongHashMap(1);
+        long[] keys = {0, -1, Long.MIN_VALUE, Long.MAX_VALUE, 1L << 32, -(1L << 32)};
+        for (long key : keys) {
+            map.put(key, ~key);
+        }
+
+        for (long key : keys) {
+            assertThat(map.containsKey(key)).isTrue();
+            assertThat(map.get(key, MISSING)).isEqualTo(~key);
+        }
+        assertThat(map.size()).isEqualTo(keys.length);
+    }
+
+    @Test
+    void growsPastItsExpectedSizeWithoutLosingEntries() {
+        LongLongHashMap map = new LongLongHashMap(2);
+        for (long id = 1; id <= 100_000; id++) {
+            map.put(id, id * 100);
+        }
+
+        assertThat(map.size()).isEqualTo(100_000);
+        for (long id = 1; id <= 100_000; id++) {
+            assertThat(map.get(id, MISSING)).isEqualTo(id * 100);
+        }
+        assertThat(map.containsKey(100_001)).isFalse();
+    }
+
+    @Test
+    void matchesHashMapUnderRandomOperations() {
+        LongLongHashMap map = new LongLongHashMap(16);
+        Map<Long, Long> reference = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int i = 0; i < 200_000; i++) {
+            // A small key range forces collisions, overwrites and long probe chains
+            long key = random.nextInt(4_096) - 2_048L;
+            switch (random.nextInt(20)) {
+                case 0 -> {
+                    if (random.nextInt(100) == 0) {
+                        map.clear();
+                        reference.clear();
+                    }
+                }
+                case 1, 2, 3, 4, 5, 6, 7, 8 -> {
+                    long value = random.nextLong();
+                    Long previous = reference.put(key, value);
+                    assertThat(map.put(key, value, MISSING)).isEqualTo(previous != null ? previous : MISSING);
+                }
+                default -> assertThat(map.get(key, MISSING)).isEqualTo(reference.getOrDefault(key, MISSING));
+            }
+            assertThat(map.size()).isEqualTo(reference.size());
+        }
+
+        Map<Long, Long> visited = new HashMap<>();
+        map.forEach(visited::put);
+        assertThat(visited).isEqualTo(reference);
+    }
+
+    @Test
+    void clearEmptiesTheMapForReuse() {
+        LongLongHashMap map = new LongLongHashMap(8);
+        map.put(1, 10);
+        map.put(2, 20);
+
+        map.clear();
+
+        assertThat(map.isEmpty()).isTrue();
+        assertThat(map.containsKey(1)).isFalse();
+        map.put(2, 21);
+        assertThat(map.get(2, MISSING)).isEqualTo(21);
+        assertThat(map.size()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,78 @@
+package com.caspercodes.bankingapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MoneyTest {
+
+    private static final Pattern CURRENCY_ROW = Pattern.compile("\\('([A-Z]{3})', (\\d)\\)");
+
+    @Test
+    void supportedDigitsFollowIso4217() {
+        Money.SUPPORTED.forEach((code, digits) ->
+                assertThat(digits).as(code).isEqualTo(Currency.getInstance(code).getDefaultFractionDigits()));
+    }
+
+    @Test
+    void migrationConvertsWithTheSameTable() throws IOException {
+        String script;
+        try (InputStream in = getClass().getResourceAsStream("/db/migrations/006-ledger-minor-units.sql")) {
+            assertThat(in).isNotNull();
+            script = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+
+        Map<String, Integer> migrated = new HashMap<>();
+        Matcher row = CURRENCY_ROW.matcher(script);
+        while (row.find()) {
+            migrated.put(row.group(1), Integer.parseInt(row.group(2)));
+        }
+        assertThat(migrated).isEqualTo(Money.SUPPORTED);
+    }
+
+    @Test
+    void currenciesWithoutAPlainMinorUnitAreRejected() {
+        // Unit of account, precious metal and no-currency codes, java.util.Currency reports 4, -1 and -1 digits
+        for (String code : new String[] {"CLF", "XAU", "XXX"}) {
+            assertThat(Money.isSupported(code)).isFalse();
+            assertThatThrownBy(() -> Money.fractionDigits(code)).isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> Money.of(BigDecimal.ONE, code)).isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void amountsAreScaledToTheCurrencysMinorUnits() {
+        assertThat(Money.toMinorUnits(new BigDecimal("12.5"), "NGN")).isEqualTo(1250);
+        assertThat(Money.toMinorUnits(new BigDecimal("12"), "JPY")).isEqualTo(12);
+        assertThat(Money.toMinorUnits(new BigDecimal("1.234"), "KWD")).isEqualTo(1234);
+        assertThat(Money.toDecimal(1234, "KWD")).isEqualByComparingTo("1.234");
+        assertThat(Money.ofMinor(-1250, "NGN")).hasToString("-12.50 NGN");
+    }
+
+    @Test
+    void moreDecimalsThanTheCurrencyHasFail() {
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1.5"), "JPY")).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1.001"), "USD")).isInstanceOf(ArithmeticException.class);
+    }
+
+    @Test
+    void arithmeticFailsInsteadOfWrapping() {
+        Money max = Money.ofMinor(Long.MAX_VALUE, "USD");
+
+        assertThatThrownBy(() -> max.plus(Money.ofMinor(1, "USD"))).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.ofMinor(Long.MIN_VALUE, "USD").negate()).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> Money.of(new BigDecimal("1e17"), "USD")).isInstanceOf(ArithmeticException.class);
+        assertThatThrownBy(() -> max.plus(Money.ofMinor(1, "EUR"))).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,83 @@
+package com.caspercodes.bankingapi.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/*
+  Transfers as TransferService posts them when group commit is off or full: both accounts locked
+  around a critical section standing in for the database round trip. Throughput should grow with
+  the number of independent account pairs the threads spread over:
+  mvn test-compile exec:exec -Pjmh -Djmh.args="StripedLockBenchmark"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(16)
+@Fork(1)
+public class StripedLockBenchmark {
+
+    // Busy work inside the lock, a few microseconds
+    private static final long ROUND_TRIP_TOKENS = 2_000;
+
+    @Param({"1", "4", "16"})
+    private int pairs;
+
+    private final StripedLock locks = new StripedLock(1024);
+
+    private long[] balances;
+
+    @Setup
+    public void setUp() {
+        balances = new long[pairs * 2];
+        Arrays.fill(balances, 1_000_000);
+    }
+
+    // Each thread works one pair, threads share pairs once there are more threads than pairs
+    @State(Scope.Thread)
+    public static class Pair {
+
+        private long from;
+
+        private long to;
+
+        @Setup
+        public void setUp(StripedLockBenchmark benchmark, ThreadParams threads) {
+            int pair = threads.getThreadIndex() % benchmark.pairs;
+            from = pair * 2L;
+            to = pair * 2L + 1;
+        }
+    }
+
+    @Benchmark
+    public long transfer(Pair pair) {
+        // Alternate direction so opposing transfers on the same pair contend
+        long from = pair.from;
+        long to = pair.to;
+        pair.from = to;
+        pair.to = from;
+
+        try (StripedLock.Held ignored = locks.lock(from, to)) {
+            Blackhole.consumeCPU(ROUND_TRIP_TOKENS);
+            balances[(int) from] -= 1;
+            balances[(int) to] += 1;
+            return balances[(int) to];
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.caspercodes.bankingapi.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/*
+  Correctness under contention only, throughput is measured by StripedLockBenchmark
+ */
+class StripedLockTest {
+
+    private static final long OPENING_BALANCE = 1_000_000;
+
+    @Test
+    void opposingTransfersConserveMoneyWithoutDeadlock() throws Exception {
+        StripedLock locks = new StripedLock(4);
+        int accounts = 8;
+        AtomicLongArray balances = new AtomicLongArray(accounts);
+        for (int i = 0; i < accounts; i++) {
+            balances.set(i, OPENING_BALANCE);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        for (int i = 0; i < 20_000; i++) {
+            executor.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int from = random.nextInt(accounts);
+                int to = (from + 1 + random.nextInt(accounts - 1)) % accounts;
+                transfer(locks, balances, from, to, random.nextInt(1, 500));
+            });
+        }
+        executor.shutdown();
+
+        assertThat(executor.awaitTermination(30, TimeUnit.SECONDS)).as("transfers deadlocked").isTrue();
+        long total = 0;
+        for (int i = 0; i < accounts; i++) {
+            assertThat(balances.get(i)).isNotNegative();
+            total += balances.get(i);
+        }
+        assertThat(total).isEqualTo(accounts * OPENING_BALANCE);
+    }
+
+    @Test
+    void repeatedKeysAreReleasedWhenClosed() throws Exception {
+        StripedLock locks = new StripedLock(2);
+
+        try (StripedLock.Held ignored = locks.lock(1, 2, 1)) {
+            assertThat(locks.stripe(1)).isBetween(0, locks.stripeCount() - 1);
+        }
+
+        // Every stripe taken above must be free again for another thread
+        CompletableFuture.runAsync(() -> {
+            try (StripedLock.Held ignored = locks.lock(1, 2)) {
+                assertThat(locks.stripeCount()).isEqualTo(2);
+            }
+        }).get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void stripeCountIsRoundedUpToAPowerOfTwo() {
+        assertThat(new StripedLock(1000).stripeCount()).isEqualTo(1024);
+        assertThat(new StripedLock(1024).stripeCount()).isEqualTo(1024);
+    }
+
+    private static void transfer(StripedLock locks, AtomicLongArray balances, int from, int to, long amount) {
+        try (StripedLock.Held ignored = locks.lock(from, to)) {
+            long available = balances.get(from);
+            if (available < amount) {
+                return;
+            }
+            // Plain read-modify-write, only the lock keeps it correct
+            balances.set(from, available - amount);
+            balances.set(to, balances.get(to) + amount);
+        }
+    }
+}